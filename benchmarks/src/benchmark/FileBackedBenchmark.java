@@ -0,0 +1,97 @@
+package benchmark;
+
+import manager.FileBackedTaskManager;
+import manager.SnapshotFormat;
+import manager.TaskConverter;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Полное сохранение и загрузка снимка из size сущностей (каждая десятая — эпик с подзадачами)
+// в форматах CSV и BINARY. Сохранение вызывается изменением задачи в классическом режиме
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Thread)
+public class FileBackedBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"CSV", "BINARY"})
+    public SnapshotFormat format;
+
+    private File directory;
+    private File file;
+    private FileBackedTaskManager manager;
+    private Task updated;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        directory = Files.createTempDirectory("kanban-bench").toFile();
+        file = new File(directory, "tasks.csv");
+        writeCsvSnapshot(file, size);
+        // Загружаем CSV и меняем одну задачу — снимок перезаписывается в нужном формате
+        manager = FileBackedTaskManager.loadFromFile(file, null, null, format);
+        updated = manager.getAllTasks().getFirst();
+        manager.updateTask(updated);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        manager.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void save() {
+        manager.updateTask(updated);
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadFromFile() {
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, null, null, format);
+        loaded.close();
+        return loaded;
+    }
+
+    // Пишет CSV-снимок напрямую: заполнять менеджер через addTask в классическом режиме
+    // значило бы сохранять файл после каждой из size задач
+    private static void writeCsvSnapshot(File target, int size) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("id,type,name,status,description,epic\n");
+            int epicId = 0;
+            for (int id = 1; id <= size; id++) {
+                Task task;
+                if (id % 10 == 1) {
+                    task = new Epic("Эпик " + id, "Описание");
+                    epicId = id;
+                } else if (id % 10 < 5) {
+                    task = new Subtask("Подзадача " + id, "Описание", epicId);
+                } else {
+                    task = new Task("Задача " + id, "Описание");
+                }
+                task.setId(id);
+                writer.write(TaskConverter.toString(task));
+                writer.write('\n');
+            }
+            writer.write('\n'); // пустая строка перед историей
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package benchmark;
+
+import manager.InMemoryHistoryManager;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// История просмотров из size задач: повторный просмотр (перенос в конец) и чтение всей истории
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private InMemoryHistoryManager history;
+    private Task[] tasks;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        history = new InMemoryHistoryManager();
+        tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task("Задача " + i, "Описание");
+            tasks[i].setId(i + 1);
+            history.add(tasks[i]);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        // Шаг 7919 (простое число) обходит задачи вразнобой, а не подряд
+        next = (next + 7919) % size;
+        history.add(tasks[next]);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+}
@@ -0,0 +1,317 @@
+package benchmark;
+
+import http.ExecutorMode;
+import http.HttpTaskServer;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import util.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Нагрузочный прогон HTTP API: поднимает HttpTaskServer на свободном порту в этом же процессе,
+// заполняет менеджер и гоняет из concurrency потоков смесь запросов через java.net.http.HttpClient.
+// В конце печатает пропускную способность и p50/p99/p99.9 по каждой операции
+// и распределение задержек всех запросов в формате HdrHistogram.
+//
+// Параметры — аргументы вида ключ=значение, например:
+//   concurrency=64 duration=30 warmup=5 mix=20,50,20,10 rate=20000 mode=BOUNDED_POOL
+// mix — веса операций POST /tasks, GET /tasks/{id}, GET /prioritized, DELETE /subtasks/{id}.
+// Без rate каждый поток шлёт следующий запрос сразу после ответа (закрытая модель): медленный
+// ответ задерживает и следующие запросы, и задержка недооценивается. С rate (запросов в секунду на всех)
+// запросы идут по расписанию, а задержка считается от запланированного момента отправки,
+// поэтому очередь перед сервером тоже попадает в замер
+public class HttpLoadGenerator {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    // Операции смеси нагрузки
+    enum Operation {
+        CREATE_TASK("POST /tasks"),
+        GET_TASK("GET /tasks/{id}"),
+        PRIORITIZED("GET /prioritized"),
+        DELETE_SUBTASK("DELETE /subtasks/{id}");
+
+        private final String title;
+
+        Operation(String title) {
+            this.title = title;
+        }
+    }
+
+    // Замеры одного потока: свои гистограммы, чтобы потоки не делили счётчики
+    private static final class WorkerStats {
+        final Map<Operation, LatencyHistogram> latency = new EnumMap<>(Operation.class);
+        final Map<Operation, Integer> errors = new EnumMap<>(Operation.class);
+        // Сколько заняло пополнение запаса подзадач при подготовке текущего запроса — в замер не входит
+        long refillNanos;
+
+        WorkerStats() {
+            for (Operation operation : Operation.values()) {
+                latency.put(operation, new LatencyHistogram());
+                errors.put(operation, 0);
+            }
+        }
+    }
+
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int[] weights;
+    // Запросов в секунду на все потоки; 0 — без расписания
+    private final int rate;
+    private final ExecutorMode mode;
+    private final int seedTasks;
+    private final int seedSubtasks;
+
+    private TaskManager manager;
+    private URI base;
+    private HttpClient client;
+    private int[] taskIds;
+    private int epicId;
+    // Подзадачи, которые ещё можно удалить
+    private final ConcurrentLinkedQueue<Integer> subtaskIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger createdTasks = new AtomicInteger();
+
+    public HttpLoadGenerator(int concurrency, Duration duration, Duration warmup, int[] weights, int rate,
+                             ExecutorMode mode, int seedTasks, int seedSubtasks) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Число потоков должно быть положительным: " + concurrency);
+        }
+        if (weights.length != Operation.values().length) {
+            throw new IllegalArgumentException("Нужно " + Operation.values().length + " веса операций");
+        }
+        this.concurrency = concurrency;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.weights = weights.clone();
+        this.rate = rate;
+        this.mode = mode;
+        this.seedTasks = Math.max(1, seedTasks);
+        this.seedSubtasks = seedSubtasks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Ожидается ключ=значение: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        String[] mix = options.getOrDefault("mix", "20,50,20,10").split(",");
+        int[] weights = new int[mix.length];
+        for (int i = 0; i < mix.length; i++) {
+            weights[i] = Integer.parseInt(mix[i].trim());
+        }
+        HttpLoadGenerator generator = new HttpLoadGenerator(
+                Integer.parseInt(options.getOrDefault("concurrency", "32")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5"))),
+                weights,
+                Integer.parseInt(options.getOrDefault("rate", "0")),
+                ExecutorMode.valueOf(options.getOrDefault("mode", ExecutorMode.VIRTUAL_THREADS.name())),
+                Integer.parseInt(options.getOrDefault("tasks", "1000")),
+                Integer.parseInt(options.getOrDefault("subtasks", "10000")));
+        HttpTaskServer.enableTcpNoDelay();
+        generator.run();
+    }
+
+    // Прогон целиком: сервер, заполнение, прогрев, замер, отчёт
+    public void run() throws IOException, InterruptedException {
+        manager = new InMemoryTaskManager();
+        seed();
+        HttpTaskServer server = new HttpTaskServer(manager, 0, 0, mode);
+        server.start();
+        base = URI.create("http://localhost:" + server.getPort());
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        try {
+            long measureFrom = System.nanoTime() + warmup.toNanos();
+            long deadline = measureFrom + duration.toNanos();
+            List<WorkerStats> stats = new ArrayList<>();
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                WorkerStats worker = new WorkerStats();
+                stats.add(worker);
+                workers.add(Thread.ofVirtual().name("load-", i).start(() -> work(worker, measureFrom, deadline)));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            // Если сервер не успевал за расписанием, потоки заканчивают позже deadline —
+            // пропускная способность считается по фактическому времени
+            report(stats, (System.nanoTime() - measureFrom) / 1_000_000_000.0);
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    // Эпик с подзадачами для удаления и задачи со временем, чтобы /prioritized не был пустым
+    private void seed() {
+        taskIds = new int[seedTasks];
+        for (int i = 0; i < seedTasks; i++) {
+            Task task = new Task("Задача " + i, "Описание");
+            task.setStartTime(START.plusMinutes(2L * i));
+            task.setDuration(Duration.ofMinutes(1));
+            manager.addTask(task);
+            taskIds[i] = task.getId();
+        }
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.addEpic(epic);
+        epicId = epic.getId();
+        for (int i = 0; i < seedSubtasks; i++) {
+            subtaskIds.add(addSubtask());
+        }
+    }
+
+    private int addSubtask() {
+        Subtask subtask = new Subtask("Подзадача", "Описание", epicId);
+        manager.addSubtask(subtask);
+        return subtask.getId();
+    }
+
+    // Цикл одного потока до deadline; замеры до measureFrom — прогрев, они не учитываются
+    private void work(WorkerStats stats, long measureFrom, long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long interval = rate > 0 ? (long) concurrency * 1_000_000_000L / rate : 0;
+        long intended = System.nanoTime();
+        while (true) {
+            // Запрос готовится до ожидания своего момента, так что пополнение запаса подзадач обычно
+            // укладывается в паузу. Если из-за него запрос опоздал, опоздание вычитается из замера
+            Operation operation = pick(random);
+            stats.refillNanos = 0;
+            HttpRequest request = request(operation, random, stats);
+            long ready = System.nanoTime();
+            long sent = ready;
+            if (interval > 0) {
+                intended += interval;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    sleepNanos(wait);
+                }
+                sent = intended + Math.min(stats.refillNanos, Math.max(0, ready - intended));
+            }
+            if (sent >= deadline) {
+                return;
+            }
+            boolean ok;
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                ok = status >= 200 && status < 300;
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finished = System.nanoTime();
+            if (sent >= measureFrom) {
+                stats.latency.get(operation).recordValue(finished - sent);
+                if (!ok) {
+                    stats.errors.merge(operation, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int roll = random.nextInt(total);
+        Operation[] operations = Operation.values();
+        for (int i = 0; i < operations.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private HttpRequest request(Operation operation, ThreadLocalRandom random, WorkerStats stats) {
+        return switch (operation) {
+            case CREATE_TASK -> HttpRequest.newBuilder(base.resolve("/tasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Нагрузка " + createdTasks.incrementAndGet()
+                            + "\",\"description\":\"Описание\",\"status\":\"NEW\"}"))
+                    .build();
+            case GET_TASK -> HttpRequest.newBuilder(base.resolve("/tasks/" + taskIds[random.nextInt(taskIds.length)]))
+                    .GET().build();
+            case PRIORITIZED -> HttpRequest.newBuilder(base.resolve("/prioritized")).GET().build();
+            case DELETE_SUBTASK -> {
+                Integer id = subtaskIds.poll();
+                int subtaskId;
+                if (id != null) {
+                    subtaskId = id;
+                } else {
+                    // Запас подзадач кончился — добавляем новую напрямую, мимо HTTP; время учитывает work
+                    long started = System.nanoTime();
+                    subtaskId = addSubtask();
+                    stats.refillNanos = System.nanoTime() - started;
+                }
+                yield HttpRequest.newBuilder(base.resolve("/subtasks/" + subtaskId)).DELETE().build();
+            }
+        };
+    }
+
+    private void report(List<WorkerStats> stats, double seconds) {
+        LatencyHistogram all = new LatencyHistogram();
+        System.out.printf(Locale.ROOT, "%nПотоков: %d, замер: %d с, прогрев: %d с, режим: %s, расписание: %s%n%n",
+                concurrency, duration.toSeconds(), warmup.toSeconds(), mode,
+                rate > 0 ? rate + " запросов/с" : "нет");
+        System.out.printf(Locale.ROOT, "%-24s %10s %8s %12s %10s %10s %10s %10s%n", "Операция", "Запросов",
+                "Ошибок", "Запросов/с", "p50, мс", "p99, мс", "p99.9, мс", "max, мс");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            int errors = 0;
+            for (WorkerStats worker : stats) {
+                histogram.add(worker.latency.get(operation));
+                errors += worker.errors.get(operation);
+            }
+            all.add(histogram);
+            printRow(operation.title, histogram, errors, seconds);
+        }
+        int errors = stats.stream().mapToInt(w -> w.errors.values().stream().mapToInt(Integer::intValue).sum()).sum();
+        printRow("Всего", all, errors, seconds);
+        System.out.println();
+        System.out.println("Распределение задержек всех запросов, мс:");
+        all.outputPercentileDistribution(System.out, 5, NANOS_PER_MILLI);
+    }
+
+    private static void printRow(String title, LatencyHistogram histogram, int errors, double seconds) {
+        System.out.printf(Locale.ROOT, "%-24s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f%n", title,
+                histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                histogram.getMax() / NANOS_PER_MILLI);
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Список приоритетов для size задач со временем: повторное чтение без изменений
+// и чтение сразу после переноса одной задачи на другое время
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrioritizedTasksBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private InMemoryTaskManager manager;
+    private Task moved;
+    private boolean shifted;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        manager = new InMemoryTaskManager();
+        for (int i = 0; i < size; i++) {
+            Task task = new Task("Задача " + i, "Описание");
+            task.setStartTime(START.plusMinutes(2L * i));
+            task.setDuration(Duration.ofMinutes(1));
+            manager.addTask(task);
+        }
+        moved = manager.getAllTasks().getFirst();
+    }
+
+    @Benchmark
+    public List<Task> unchanged() {
+        return manager.getPrioritizedTasks();
+    }
+
+    @Benchmark
+    public List<Task> afterUpdate() {
+        // Переносим задачу в свободный промежуток и обратно — список меняется на каждом вызове
+        shifted = !shifted;
+        moved.setStartTime(moved.getStartTime().plusSeconds(shifted ? 30 : -30));
+        moved.setDuration(Duration.ofSeconds(20));
+        manager.updateTask(moved);
+        return manager.getPrioritizedTasks();
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import model.Epic;
+import model.Subtask;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Удаление эпика с subtasks подзадачами (со временем выполнения и в истории просмотров).
+// Каждое измерение удаляет один эпик, который заново строится перед ним
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class RemoveEpicBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"1000", "100000"})
+    public int subtasks;
+
+    private InMemoryTaskManager manager;
+    private int epicId;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        manager = new InMemoryTaskManager();
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.addEpic(epic);
+        epicId = epic.getId();
+        for (int i = 0; i < subtasks; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание", epicId);
+            subtask.setStartTime(START.plusMinutes(2L * i));
+            subtask.setDuration(Duration.ofMinutes(1));
+            manager.addSubtask(subtask);
+            if (i % 10 == 0) {
+                manager.getSubtaskById(subtask.getId());
+            }
+        }
+    }
+
+    @Benchmark
+    public void removeEpic() {
+        manager.removeEpic(epicId);
+    }
+}
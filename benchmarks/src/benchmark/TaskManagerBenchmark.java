@@ -0,0 +1,71 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Добавление задач и подзадач в менеджер, где уже лежит size задач.
+// С timed = true у каждой задачи есть время выполнения, и добавление проходит проверку пересечений.
+// Одно измерение — пачка из BATCH добавлений в свежезаполненный менеджер
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = TaskManagerBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = TaskManagerBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskManagerBenchmark {
+    static final int BATCH = 10_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean timed;
+
+    private InMemoryTaskManager manager;
+    private int epicId;
+    // Номер следующего свободного интервала времени
+    private long slot;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        manager = new InMemoryTaskManager();
+        slot = 0;
+        for (int i = 0; i < size; i++) {
+            manager.addTask(withTime(new Task("Задача " + i, "Описание")));
+        }
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.addEpic(epic);
+        epicId = epic.getId();
+    }
+
+    @Benchmark
+    public Task addTask() {
+        Task task = withTime(new Task("Задача", "Описание"));
+        manager.addTask(task);
+        return task;
+    }
+
+    @Benchmark
+    public Subtask addSubtask() {
+        Subtask subtask = withTime(new Subtask("Подзадача", "Описание", epicId));
+        manager.addSubtask(subtask);
+        return subtask;
+    }
+
+    // Задаёт задаче следующий свободный интервал, если замер со временем
+    private <T extends Task> T withTime(T task) {
+        if (timed) {
+            task.setStartTime(START.plusMinutes(2 * slot++));
+            task.setDuration(Duration.ofMinutes(1));
+        }
+        return task;
+    }
+}
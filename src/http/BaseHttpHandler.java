@@ -7,6 +7,8 @@ import java.nio.charset.StandardCharsets;
 
 // Базовый класс для всех HTTP-обработчиков — содержит общие методы ответа
 public class BaseHttpHandler {
+    // Атрибут запроса, в котором обработчик оставляет исключение для фильтра метрик
+    public static final String ERROR_ATTRIBUTE = "http.handler.error";
 
     // Отправка стандартного успешного ответа с текстом (обычно JSON)
     protected void sendText(HttpExchange h, String text) throws IOException {
@@ -34,4 +36,13 @@ public class BaseHttpHandler {
         h.getResponseBody().write(resp);
         h.close();
     }
-}
\ No newline at end of file
+
+    // Отправка ответа 500 — если обработчик упал. Ошибка пишется в лог одной строкой
+    // и остаётся в атрибуте запроса, чтобы фильтр метрик посчитал её по типу исключения
+    protected void sendServerError(HttpExchange h, Exception e) throws IOException {
+        h.setAttribute(ERROR_ATTRIBUTE, e);
+        System.out.println("Ошибка при обработке " + h.getRequestMethod() + " " + h.getRequestURI() + ": " + e);
+        h.sendResponseHeaders(500, 0);
+        h.getResponseBody().close();
+    }
+}
@@ -0,0 +1,36 @@
+package http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import manager.HistoryManager;
+import manager.TaskManager;
+
+import java.io.IOException;
+
+// Привязывает обработку запроса к разделу истории клиента из заголовка X-Client-Id.
+// Действует, только если менеджер создан с PartitionedHistoryManager; иначе заголовок ни на что не влияет
+public class ClientHistoryFilter extends Filter {
+    public static final String CLIENT_HEADER = "X-Client-Id";
+
+    private final TaskManager taskManager;
+
+    public ClientHistoryFilter(TaskManager taskManager) {
+        this.taskManager = taskManager;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String clientId = exchange.getRequestHeaders().getFirst(CLIENT_HEADER);
+        HistoryManager.ClientScope scope = taskManager.forClient(clientId);
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Раздел истории по заголовку " + CLIENT_HEADER;
+    }
+}
@@ -124,9 +124,7 @@ public class EpicHandler extends BaseHttpHandler implements HttpHandler {
             exchange.getResponseBody().close();
 
         } catch (Exception e) {
-            e.printStackTrace(); // Логируем ошибку
-            exchange.sendResponseHeaders(500, 0); // Внутренняя ошибка сервера
-            exchange.getResponseBody().close();
+            sendServerError(exchange, e); // Внутренняя ошибка сервера
         }
     }
 
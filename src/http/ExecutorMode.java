@@ -0,0 +1,11 @@
+package http;
+
+// Как HttpTaskServer распределяет запросы по потокам
+public enum ExecutorMode {
+    // Все запросы в одном потоке-диспетчере сервера (поведение по умолчанию у HttpServer)
+    INLINE,
+    // Каждый запрос в своём виртуальном потоке — медленный клиент или запись на диск не держат остальных
+    VIRTUAL_THREADS,
+    // Ограниченный пул обычных потоков; при переполнении очереди запрос выполняет сам диспетчер
+    BOUNDED_POOL
+}
@@ -1,16 +1,28 @@
 package http;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.HistoryManager;
 import manager.TaskManager;
 import model.Task;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+// GET /history — вся история от первого просмотра к последнему.
+// GET /history?limit=N[&cursor=ID] — страница из N последних просмотров, самый свежий первым;
+// курсор следующей страницы приходит в заголовке X-Next-Cursor (нет заголовка — страниц больше нет).
+// GET /history/top?k=N — не больше N самых просматриваемых задач (по умолчанию 10), самая частая первой.
+// Под замками менеджера обход только собирает ссылки на задачи; JSON пишется уже после него,
+// чтобы просмотры в других запросах не ждали сериализации. Ответ идёт частями (chunked) прямо
+// в поток ответа — весь JSON целиком в памяти не собирается
 public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
     private final TaskManager taskManager;
     private final Gson gson = new GsonBuilder()
@@ -24,6 +36,11 @@ public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
                     (src, typeOfSrc, context) -> new JsonPrimitive(src.toMinutes()))
             .create();
 
+    // Размер страницы, если передан только cursor
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Сколько самых просматриваемых задач отдаётся, если k не передан
+    private static final int DEFAULT_TOP_SIZE = 10;
+
     public HistoryHandler(TaskManager taskManager) {
         this.taskManager = taskManager;
     }
@@ -36,9 +53,43 @@ public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
 
             // Обработка GET-запроса на /history
             if ("GET".equals(method) && "/history".equals(path)) {
-                List<Task> history = List.copyOf(taskManager.getHistory());
-                String json = gson.toJson(history);
-                sendText(exchange, json);
+                String limitParam = queryParam(exchange, "limit");
+                String cursorParam = queryParam(exchange, "cursor");
+                if (limitParam == null && cursorParam == null) {
+                    List<Task> history = new ArrayList<>();
+                    taskManager.visitHistory(history::add);
+                    sendJson(exchange, history, HistoryManager.NO_CURSOR);
+                    return;
+                }
+                try {
+                    int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limitParam);
+                    int cursor = cursorParam == null ? HistoryManager.NO_CURSOR : Integer.parseInt(cursorParam);
+                    if (limit <= 0) {
+                        throw new NumberFormatException("limit должен быть положительным");
+                    }
+                    List<Task> page = new ArrayList<>(Math.min(limit, DEFAULT_PAGE_SIZE));
+                    int nextCursor = taskManager.visitRecentHistory(cursor, limit, page::add);
+                    sendJson(exchange, page, nextCursor);
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(400, 0); // Неверный limit или cursor
+                    exchange.getResponseBody().close();
+                }
+                return;
+            }
+
+            // Самые просматриваемые задачи
+            if ("GET".equals(method) && "/history/top".equals(path)) {
+                try {
+                    String kParam = queryParam(exchange, "k");
+                    int k = kParam == null ? DEFAULT_TOP_SIZE : Integer.parseInt(kParam);
+                    if (k <= 0) {
+                        throw new NumberFormatException("k должен быть положительным");
+                    }
+                    sendText(exchange, gson.toJson(taskManager.getMostViewed(k)));
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(400, 0); // Неверный k
+                    exchange.getResponseBody().close();
+                }
                 return;
             }
 
@@ -47,8 +98,43 @@ public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
             exchange.getResponseBody().close();
 
         } catch (Exception e) {
-            exchange.sendResponseHeaders(500, 0);
-            exchange.getResponseBody().close();
+            sendServerError(exchange, e);
+        }
+    }
+
+    // Отправляет JSON-массив задач (каждую — по её настоящему классу): длина заранее неизвестна,
+    // поэтому ответ chunked, а JsonWriter пишет прямо в поток ответа через буфер OutputStreamWriter
+    private void sendJson(HttpExchange exchange, List<Task> tasks, int nextCursor) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        if (nextCursor != HistoryManager.NO_CURSOR) {
+            exchange.getResponseHeaders().add("X-Next-Cursor", String.valueOf(nextCursor));
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = new JsonWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (Task task : tasks) {
+                gson.toJson(task, task.getClass(), writer);
+            }
+            writer.endArray();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Значение параметра запроса или null
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                return eq < 0 ? "" : pair.substring(eq + 1);
+            }
         }
+        return null;
     }
 }
@@ -1,51 +1,146 @@
 package http;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import manager.InstrumentedTaskManager;
 import manager.Managers;
 import manager.TaskManager;
+import util.MetricsRegistry;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 // HTTP-сервер для обработки API-запросов пользователя
 public class HttpTaskServer {
     private static final int PORT = 8080;
+    // Сколько задач может ждать свободного потока в ограниченном пуле (на каждый поток)
+    private static final int QUEUE_PER_THREAD = 64;
     private HttpServer server;
     private final TaskManager taskManager;
+    // Пул, в котором выполняются запросы; null — запросы выполняет поток-диспетчер
+    private final ExecutorService executor;
+    private final ClientHistoryFilter historyFilter;
+    private final MetricsRegistry metrics;
 
-    // Конструктор сервера, инициализация менеджера задач
+    // Конструктор сервера, инициализация менеджера задач.
+    // Запросы выполняются параллельно в виртуальных потоках, а ответы сериализуются уже без блокировок
+    // менеджера — это безопасно, пока менеджер не меняет отданные объекты (см. TaskManager).
+    // Для менеджера без такой гарантии — ExecutorMode.INLINE, один поток-диспетчер
     public HttpTaskServer(TaskManager taskManagerIn) throws IOException {
+        this(taskManagerIn, PORT, 0, ExecutorMode.VIRTUAL_THREADS);
+    }
+
+    // backlog — длина очереди входящих соединений (0 — значение системы по умолчанию);
+    // port 0 — занять любой свободный порт (его вернёт getPort())
+    public HttpTaskServer(TaskManager taskManagerIn, int port, int backlog, ExecutorMode mode) throws IOException {
+        this(taskManagerIn, port, backlog, mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    // poolSize — число потоков для режима BOUNDED_POOL, в остальных режимах не используется
+    public HttpTaskServer(TaskManager taskManagerIn, int port, int backlog, ExecutorMode mode,
+                          int poolSize) throws IOException {
+        this(taskManagerIn, port, backlog, mode, poolSize, new MetricsRegistry());
+    }
+
+    // metrics — реестр, в который пишут обработчики и менеджер; его содержимое отдаётся по /metrics
+    public HttpTaskServer(TaskManager taskManagerIn, int port, int backlog, ExecutorMode mode,
+                          int poolSize, MetricsRegistry metrics) throws IOException {
         this.taskManager = taskManagerIn;
-        this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        this.metrics = metrics;
+        this.historyFilter = new ClientHistoryFilter(taskManagerIn);
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.executor = createExecutor(mode, poolSize);
+        server.setExecutor(executor);
 
         // Регистрируем обработчик Задач
-        server.createContext("/tasks", new TaskHandler(taskManager));
+        register("/tasks", new TaskHandler(taskManager));
         // Регистрируем обработчик Эпиков
-        server.createContext("/epics", new EpicHandler(taskManager));
+        register("/epics", new EpicHandler(taskManager));
         // Регистрируем обработчик Подзадач
-        server.createContext("/subtasks", new SubtaskHandler(taskManager));
+        register("/subtasks", new SubtaskHandler(taskManager));
         // Регистрируем список задач по приоритету
-        server.createContext("/prioritized", new PrioritizedHandler(taskManager));
+        register("/prioritized", new PrioritizedHandler(taskManager));
         //история
-        server.createContext("/history", new HistoryHandler(taskManager));
+        register("/history", new HistoryHandler(taskManager));
+        // Показатели сервера и менеджера в формате Prometheus
+        server.createContext("/metrics", new MetricsHandler(metrics));
+        taskManager.registerMetrics(metrics);
+    }
+
+    // Регистрирует обработчик; просмотры в нём попадают в раздел истории клиента из заголовка запроса,
+    // время обработки и коды ответов — в показатели
+    private void register(String path, HttpHandler handler) {
+        var filters = server.createContext(path, handler).getFilters();
+        filters.add(new MetricsFilter(metrics, path));
+        filters.add(historyFilter);
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    // Создаёт пул для выбранного режима
+    private static ExecutorService createExecutor(ExecutorMode mode, int poolSize) {
+        return switch (mode) {
+            case INLINE -> null;
+            case VIRTUAL_THREADS -> Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("http-request-", 0).factory());
+            case BOUNDED_POOL -> new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(poolSize * QUEUE_PER_THREAD),
+                    Thread.ofPlatform().name("http-request-", 0).daemon().factory(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        };
     }
 
     // Метод запуска сервера
     public void start() {
         server.start();
-        System.out.println("HTTP-сервер запущен на порту " + PORT);
+        System.out.println("HTTP-сервер запущен на порту " + getPort());
+    }
+
+    // Порт, который слушает сервер; при создании с портом 0 — выбранный системой свободный порт
+    public int getPort() {
+        return server.getAddress().getPort();
     }
 
     // Метод остановки сервера
     public void stop() {
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         System.out.println("HTTP-сервер остановлен");
     }
 
+    // Включает TCP_NODELAY для сокетов com.sun.net.httpserver, если он не задан при запуске
+    // (-Dsun.net.httpserver.nodelay=...). Заголовки и тело ответа уходят отдельными пакетами: без него
+    // тело ждёт подтверждения заголовков, а клиент откладывает подтверждение до ~40 мс, и каждый запрос
+    // по keep-alive соединению длится 40+ мс. Свойство общее для JVM и читается при первом создании
+    // HttpServer, поэтому его задают точки входа (main, нагрузочный прогон) до создания сервера
+    public static void enableTcpNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
     // Метод main — точка входа для запуска приложения
     public static void main(String[] args) {
+        enableTcpNoDelay();
         try {
-            HttpTaskServer httpTaskServer = new HttpTaskServer(Managers.getDefault());
+            MetricsRegistry metrics = new MetricsRegistry();
+            TaskManager taskManager = new InstrumentedTaskManager(Managers.getDefault(), metrics);
+            HttpTaskServer httpTaskServer = new HttpTaskServer(taskManager, PORT, 0, ExecutorMode.VIRTUAL_THREADS,
+                    Runtime.getRuntime().availableProcessors(), metrics);
             httpTaskServer.start();
         } catch (IOException e) {
             System.out.println("Ошибка при запуске HTTP-сервера: " + e.getMessage());
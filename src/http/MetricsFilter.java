@@ -0,0 +1,92 @@
+package http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import util.LatencyHistogram;
+import util.MetricsRegistry;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Замеряет время обработки запросов одного обработчика и считает ответы по кодам статуса.
+// Исключения, дошедшие до фильтра или оставленные обработчиком в ERROR_ATTRIBUTE, считаются по типу
+public class MetricsFilter extends Filter {
+    // Остальные методы попадают в метку OTHER, чтобы произвольные методы не плодили показатели
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS");
+    // Коды ответа 0..MAX_STATUS - 1; ячейка 0 — ответ не отправлен, код вне диапазона тоже попадает в неё
+    private static final int MAX_STATUS = 600;
+
+    // Показатели одного метода: гистограмма и счётчики по кодам ответа, взятые из реестра один раз
+    private final class MethodMetrics {
+        final String method;
+        final LatencyHistogram latency;
+        final AtomicReferenceArray<LongAdder> byStatus = new AtomicReferenceArray<>(MAX_STATUS);
+
+        MethodMetrics(String method) {
+            this.method = method;
+            this.latency = metrics.histogram("http_request_duration_seconds", "Время обработки HTTP-запросов",
+                    MetricsRegistry.labels("handler", handler, "method", method));
+        }
+
+        LongAdder requests(int status) {
+            int index = status > 0 && status < MAX_STATUS ? status : 0;
+            LongAdder counter = byStatus.get(index);
+            if (counter == null) {
+                counter = metrics.counter("http_requests_total", "Число HTTP-запросов по кодам ответа",
+                        MetricsRegistry.labels("handler", handler, "method", method,
+                                "status", index == 0 ? "none" : String.valueOf(index)));
+                byStatus.set(index, counter); // реестр вернёт тот же счётчик, если два потока придут сюда вместе
+            }
+            return counter;
+        }
+    }
+
+    private final MetricsRegistry metrics;
+    private final String handler;
+    // Показатели по методу и счётчики исключений по классу — строки меток собираются только
+    // при первом появлении метода, кода ответа или типа исключения, а не на каждый запрос
+    private final Map<String, MethodMetrics> byMethod = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+
+    // handler — путь контекста, он же метка handler
+    public MetricsFilter(MetricsRegistry metrics, String handler) {
+        this.metrics = metrics;
+        this.handler = handler;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String method = METHODS.contains(exchange.getRequestMethod()) ? exchange.getRequestMethod() : "OTHER";
+        long started = System.nanoTime();
+        Throwable failure = null;
+        try {
+            chain.doFilter(exchange);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            MethodMetrics methodMetrics = byMethod.computeIfAbsent(method, MethodMetrics::new);
+            methodMetrics.latency.recordValue(System.nanoTime() - started);
+            // -1 — ответ так и не был отправлен (обработчик упал раньше)
+            methodMetrics.requests(exchange.getResponseCode()).increment();
+            if (failure == null && exchange.getAttribute(BaseHttpHandler.ERROR_ATTRIBUTE) instanceof Throwable error) {
+                failure = error;
+            }
+            if (failure != null) {
+                errors.computeIfAbsent(failure.getClass(), type -> metrics.counter("http_request_errors_total",
+                        "Исключения при обработке HTTP-запросов",
+                        MetricsRegistry.labels("handler", handler, "exception", type.getSimpleName())))
+                        .increment();
+            }
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Показатели запросов к " + handler;
+    }
+}
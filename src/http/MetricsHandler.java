@@ -0,0 +1,42 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import util.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Отдаёт все показатели в текстовом формате Prometheus
+public class MetricsHandler extends BaseHttpHandler implements HttpHandler {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry metrics;
+
+    public MetricsHandler(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/metrics".equals(exchange.getRequestURI().getPath())) {
+                sendNotFound(exchange);
+                return;
+            }
+            // Метод не поддерживается
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, 0);
+                exchange.getResponseBody().close();
+                return;
+            }
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        } catch (Exception e) {
+            sendServerError(exchange, e);
+        }
+    }
+}
@@ -37,7 +37,7 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
 
             // Обработка GET-запроса на /prioritized
             if ("GET".equals(method) && "/prioritized".equals(path)) {
-                List<Task> prioritized = List.copyOf(taskManager.getPrioritizedTasks());
+                List<Task> prioritized = taskManager.getPrioritizedTasks();
                 String json = gson.toJson(prioritized);
                 sendText(exchange, json);
                 return;
@@ -48,8 +48,7 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
             exchange.getResponseBody().close();
 
         } catch (Exception e) {
-            exchange.sendResponseHeaders(500, 0);
-            exchange.getResponseBody().close();
+            sendServerError(exchange, e);
         }
     }
 }
@@ -0,0 +1,243 @@
+package manager;
+
+import model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+// Компактный двоичный формат задач для снимков.
+// Запись задачи: длина (varint) и тело — тип, id (varint), статус, флаги, имя и описание
+// (длина + UTF-8), id эпика у подзадачи, время старта в минутах от эпохи и длительность в минутах.
+// В отличие от CSV формат не зависит от запятых в тексте и сохраняет все поля задачи.
+// Начиная с версии 2 за телом записи идёт его контрольная сумма CRC32C (4 байта).
+public class BinaryTaskConverter {
+    // Сигнатура и версия двоичного снимка
+    public static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    public static final int VERSION = 2;
+    // Первая версия, в которой записи снабжены контрольной суммой
+    private static final int CHECKSUM_VERSION = 2;
+
+    // Флаги записи
+    private static final int HAS_START_TIME = 1;
+    private static final int START_TIME_HAS_SECONDS = 1 << 1;
+    private static final int HAS_DURATION = 1 << 2;
+    private static final int DURATION_HAS_SECONDS = 1 << 3;
+
+    // Преобразует задачу в запись с префиксом длины и контрольной суммой тела
+    public static void writeTask(OutputStream out, Task task) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        writeBody(body, task);
+        writeVarInt(out, body.size());
+        body.writeTo(out);
+        CRC32C crc = new CRC32C();
+        crc.update(body.toByteArray());
+        int checksum = (int) crc.getValue();
+        out.write(checksum >>> 24);
+        out.write(checksum >>> 16);
+        out.write(checksum >>> 8);
+        out.write(checksum);
+    }
+
+    // Читает задачу из записи текущей версии
+    public static Task readTask(ByteBuffer in) {
+        return readTask(in, VERSION);
+    }
+
+    // Читает задачу из записи с префиксом длины, начиная с текущей позиции буфера.
+    // version — версия снимка; если в ней есть контрольные суммы, они проверяются
+    public static Task readTask(ByteBuffer in, int version) {
+        int length = readVarInt(in);
+        int start = in.position();
+        int end = start + length;
+        if (version >= CHECKSUM_VERSION) {
+            CRC32C crc = new CRC32C();
+            crc.update(in.duplicate().limit(end));
+            if ((int) crc.getValue() != in.getInt(end)) {
+                throw new IllegalArgumentException("Контрольная сумма записи не совпадает, позиция " + start);
+            }
+        }
+        Task task = readBody(in);
+        in.position(version >= CHECKSUM_VERSION ? end + Integer.BYTES : end);
+        return task;
+    }
+
+    // Пропускает запись, не разбирая её (нужно, чтобы быстро найти границы записей)
+    public static void skipTask(ByteBuffer in, int version) {
+        int length = readVarInt(in);
+        int end = in.position() + length + (version >= CHECKSUM_VERSION ? Integer.BYTES : 0);
+        in.position(end);
+    }
+
+    // Преобразует задачу в массив байт (тело записи без префикса длины)
+    public static byte[] toBytes(Task task) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        try {
+            writeBody(body, task);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream не бросает IOException
+        }
+        return body.toByteArray();
+    }
+
+    // Восстанавливает задачу из тела записи
+    public static Task fromBytes(byte[] bytes) {
+        return readBody(ByteBuffer.wrap(bytes));
+    }
+
+    private static void writeBody(OutputStream out, Task task) throws IOException {
+        TaskType type = task.getType();
+        LocalDateTime startTime = task.getStartTime();
+        Duration duration = task.getDuration();
+
+        int flags = 0;
+        if (startTime != null) {
+            flags |= HAS_START_TIME;
+            if (startTime.getSecond() != 0 || startTime.getNano() != 0) {
+                flags |= START_TIME_HAS_SECONDS;
+            }
+        }
+        if (duration != null) {
+            flags |= HAS_DURATION;
+            if (duration.toSecondsPart() != 0 || duration.toNanosPart() != 0) {
+                flags |= DURATION_HAS_SECONDS;
+            }
+        }
+
+        out.write(type.ordinal());
+        writeVarInt(out, task.getId());
+        out.write(task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1);
+        out.write(flags);
+        writeString(out, task.getName());
+        writeString(out, task.getDescription());
+        if (task instanceof Subtask subtask) {
+            writeVarInt(out, subtask.getEpicId());
+        }
+        if (startTime != null) {
+            writeVarLong(out, zigZag(Math.floorDiv(startTime.toEpochSecond(ZoneOffset.UTC), 60)));
+            if ((flags & START_TIME_HAS_SECONDS) != 0) {
+                writeVarInt(out, startTime.getSecond());
+                writeVarInt(out, startTime.getNano());
+            }
+        }
+        if (duration != null) {
+            writeVarLong(out, zigZag(duration.toMinutes()));
+            if ((flags & DURATION_HAS_SECONDS) != 0) {
+                writeVarInt(out, duration.toSecondsPart());
+                writeVarInt(out, duration.toNanosPart());
+            }
+        }
+    }
+
+    private static Task readBody(ByteBuffer in) {
+        TaskType type = TaskType.values()[in.get()];
+        int id = readVarInt(in);
+        int statusCode = in.get();
+        int flags = in.get();
+        String name = readString(in);
+        String description = readString(in);
+
+        Task task = switch (type) {
+            case TASK -> new Task(name, description);
+            case EPIC -> new Epic(name, description);
+            case SUBTASK -> new Subtask(name, description, readVarInt(in));
+        };
+        task.setId(id);
+        task.setStatus(statusCode == 0 ? null : TaskStatus.values()[statusCode - 1]);
+
+        if ((flags & HAS_START_TIME) != 0) {
+            LocalDateTime startTime = LocalDateTime.ofEpochSecond(unZigZag(readVarLong(in)) * 60, 0,
+                    ZoneOffset.UTC);
+            if ((flags & START_TIME_HAS_SECONDS) != 0) {
+                startTime = startTime.withSecond(readVarInt(in)).withNano(readVarInt(in));
+            }
+            task.setStartTime(startTime);
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            Duration duration = Duration.ofMinutes(unZigZag(readVarLong(in)));
+            if ((flags & DURATION_HAS_SECONDS) != 0) {
+                duration = duration.plusSeconds(readVarInt(in)).plusNanos(readVarInt(in));
+            }
+            task.setDuration(duration);
+        } else {
+            task.setDuration(null);
+        }
+        return task;
+    }
+
+    // Строка: длина в байтах + 1 (0 — null), затем UTF-8
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // Беззнаковое число переменной длины: по 7 бит в байте, старший бит — "дальше ещё байт"
+    public static void writeVarInt(OutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    public static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Слишком длинное число в двоичной записи");
+            }
+        }
+    }
+
+    // Отрицательные значения (время до 1970 года) кодируем зигзагом, чтобы varint оставался коротким
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,218 @@
+package manager;
+
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// История для многопоточного сервера: запись просмотра не берёт общий замок.
+// Просмотр кладётся в кольцевой буфер своей полосы (полоса выбирается по потоку, так что потоки
+// почти не сталкиваются), а в упорядоченный список истории буферы сливаются пачками под замком —
+// когда буфер заполнился наполовину или кто-то читает историю.
+// Порядок: буфер полосы — очередь FIFO, а поток всегда пишет в одну и ту же полосу, поэтому просмотры
+// одного потока попадают в историю в порядке вызовов. Между потоками порядок приблизительный: просмотры
+// внутри одной пачки сортируются по номеру из общего счётчика, но слияние читает полосы по очереди
+// и может забрать более поздний просмотр из одной полосы раньше, чем более ранний успеет появиться
+// в другой, — тогда ранний попадёт только в следующую пачку и окажется в истории позже.
+// Чтение истории сначала сливает буферы, поэтому видит все просмотры, завершившиеся до его начала
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int MAX_STRIPES = 64;
+    // Размер кольцевого буфера одной полосы (степень двойки)
+    private static final int BUFFER_SIZE = 128;
+    // При таком числе ждущих просмотров записывающий поток пробует слить буферы сам
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+
+    // Просмотр, ждущий слияния; seq задаёт порядок между полосами
+    private record View(long seq, Task task) {
+    }
+
+    // Кольцевой буфер "много писателей — один читатель". Писатель занимает ячейку, сдвигая tail,
+    // и затем публикует в неё просмотр; читатель (только под drainLock) забирает ячейки от head до tail
+    private static final class RingBuffer {
+        private final AtomicReferenceArray<View> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        // false — буфер полон
+        boolean offer(View view) {
+            while (true) {
+                long t = tail.get();
+                if (t - head >= BUFFER_SIZE) {
+                    return false;
+                }
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.set((int) (t & (BUFFER_SIZE - 1)), view);
+                    return true;
+                }
+            }
+        }
+
+        int pending() {
+            return (int) (tail.get() - head);
+        }
+
+        void drainTo(List<View> out) {
+            long h = head;
+            long t = tail.get();
+            for (; h < t; h++) {
+                int index = (int) (h & (BUFFER_SIZE - 1));
+                View view;
+                // Ячейка занята, но писатель ещё не успел её заполнить — это доли микросекунды
+                while ((view = slots.get(index)) == null) {
+                    Thread.onSpinWait();
+                }
+                slots.set(index, null);
+                out.add(view);
+            }
+            head = h;
+        }
+    }
+
+    private final RingBuffer[] stripes;
+    private final AtomicLong sequence = new AtomicLong();
+    // Охраняет history и чтение из буферов
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final InMemoryHistoryManager history;
+    // Пачка для слияния (используется только под drainLock)
+    private final List<View> batch = new ArrayList<>();
+
+    public ConcurrentHistoryManager() {
+        this(InMemoryHistoryManager.UNBOUNDED);
+    }
+
+    public ConcurrentHistoryManager(int capacity) {
+        this.history = new InMemoryHistoryManager(capacity);
+        int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(
+                Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1);
+        this.stripes = new RingBuffer[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new RingBuffer();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        View view = new View(sequence.getAndIncrement(), task);
+        RingBuffer buffer = stripe();
+        while (!buffer.offer(view)) {
+            // Буфер полон — сливаем его сами, дождавшись замка, и пробуем снова
+            drainLock.lock();
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        if (buffer.pending() >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Просмотры, завершившиеся до удаления, сливаются раньше него. Просмотр, идущий одновременно
+    // с удалением, может вернуть задачу в историю — от этого защищает менеджер задач: он удаляет задачу
+    // под блокировкой записи, а просмотры добавляет под блокировкой чтения
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drain();
+            history.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Task> visitor) {
+        drainLock.lock();
+        try {
+            drain();
+            history.forEach(visitor);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public int visitRecent(int cursor, int limit, Consumer<? super Task> visitor) {
+        drainLock.lock();
+        try {
+            drain();
+            return history.visitRecent(cursor, limit, visitor);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Частоты считаются при слиянии буферов — на пути записи просмотра их учёт ничего не стоит
+    @Override
+    public List<Integer> getMostViewed(int k) {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getMostViewed(k);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    // Переносит ждущие просмотры всех полос в историю; внутри пачки — в порядке номеров (под drainLock)
+    private void drain() {
+        for (RingBuffer buffer : stripes) {
+            buffer.drainTo(batch);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.sort(Comparator.comparingLong(View::seq));
+        for (View view : batch) {
+            history.add(view.task());
+        }
+        batch.clear();
+    }
+
+    private RingBuffer stripe() {
+        long id = Thread.currentThread().threadId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,93 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Сводка по подзадачам одного эпика: сколько подзадач в каждом статусе, суммарная длительность,
+// мультимножества времён старта и окончания. Добавление, изменение и удаление подзадачи стоят
+// O(log k), и статус со временем эпика не требуют обхода всех его подзадач.
+// Вклад подзадачи запоминается при добавлении — так его можно вычесть, даже если объект подзадачи
+// уже изменили на месте
+public class EpicAggregate {
+
+    // Что подзадача внесла в сводку
+    private record Contribution(TaskStatus status, Duration duration, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private Duration totalDuration = Duration.ZERO;
+    // Время -> сколько подзадач с таким временем (TreeMap как мультимножество)
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+
+    // Добавляет подзадачу или заменяет её прежний вклад
+    public void put(Subtask subtask) {
+        remove(subtask.getId());
+        Duration duration = subtask.getDuration() == null ? Duration.ZERO : subtask.getDuration();
+        Contribution contribution = new Contribution(subtask.getStatus(), duration, subtask.getStartTime(),
+                subtask.getEndTime());
+        contributions.put(subtask.getId(), contribution);
+        if (contribution.status() != null) {
+            statusCounts[contribution.status().ordinal()]++;
+        }
+        totalDuration = totalDuration.plus(duration);
+        if (contribution.start() != null) {
+            starts.merge(contribution.start(), 1, Integer::sum);
+        }
+        if (contribution.end() != null) {
+            ends.merge(contribution.end(), 1, Integer::sum);
+        }
+    }
+
+    // Учитывает новое состояние подзадачи, только если она уже входит в сводку
+    public void replace(Subtask subtask) {
+        if (contributions.containsKey(subtask.getId())) {
+            put(subtask);
+        }
+    }
+
+    // Убирает вклад подзадачи
+    public void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        if (contribution.status() != null) {
+            statusCounts[contribution.status().ordinal()]--;
+        }
+        totalDuration = totalDuration.minus(contribution.duration());
+        if (contribution.start() != null) {
+            decrement(starts, contribution.start());
+        }
+        if (contribution.end() != null) {
+            decrement(ends, contribution.end());
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> multiset, LocalDateTime time) {
+        multiset.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    // Записывает в эпик статус, длительность, время старта и окончания по сводке
+    public void applyTo(Epic epic) {
+        int total = contributions.size();
+        if (total == 0 || statusCounts[TaskStatus.NEW.ordinal()] == total) {
+            epic.setStatus(TaskStatus.NEW);
+        } else if (statusCounts[TaskStatus.DONE.ordinal()] == total) {
+            epic.setStatus(TaskStatus.DONE);
+        } else {
+            epic.setStatus(TaskStatus.IN_PROGRESS);
+        }
+        epic.setDuration(totalDuration);
+        epic.setStartTime(starts.isEmpty() ? null : starts.firstKey());
+        epic.setEndTime(ends.isEmpty() ? null : ends.lastKey());
+    }
+}
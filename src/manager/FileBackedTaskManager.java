@@ -1,99 +1,559 @@
 package manager;
 
 import model.*;
+import util.LatencyHistogram;
+import util.MetricsRegistry;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
     private final File file;
+    // Журнал операций; null — классический режим, когда каждое изменение переписывает весь файл
+    private final TaskJournal journal;
+    // Куда пишутся просмотры: в режиме журнала — в сам журнал, иначе — в маленький файл рядом со снимком.
+    // Так чтение задачи не переписывает весь файл ради обновления истории
+    private final TaskJournal historyLog;
+    // В каком формате писать полный снимок; при загрузке формат определяется по содержимому файла
+    private final SnapshotFormat snapshotFormat;
+
+    // Снимки меньше этого размера разбираются в одном потоке — распараллеливание не окупается
+    private static final int PARALLEL_LOAD_THRESHOLD = 1 << 20;
+    // Примерный размер куска снимка при параллельном разборе
+    private static final int LOAD_CHUNK_SIZE = 256 * 1024;
+
+    // Фоновые контрольные точки (только в режиме журнала)
+    private final Object checkpointLock = new Object();
+    private ScheduledExecutorService checkpointer;
+    // Сколько записей попало в журнал после последней контрольной точки. Просмотры увеличивают счётчик
+    // под блокировкой чтения (и без замка истории, если история конкурентная), поэтому он атомарный
+    private final AtomicLong changesSinceCheckpoint = new AtomicLong();
+    // Растёт при каждой замене снимка — так контрольная точка узнаёт, что её снимок устарел
+    private long snapshotGeneration;
+
+    // Дельта-сегменты: контрольная точка пишет в <file>.segN только задачи, изменённые с прошлой точки.
+    // Когда сегментов набирается MAX_SEGMENTS, снимок переписывается целиком, а сегменты удаляются
+    private static final int MAX_SEGMENTS = 8;
+    private int segmentCount;
+    // Отпечаток текущего снимка (размер и CRC32C): сегмент применяется только к снимку, от которого он записан
+    private String snapshotBase = snapshotBase(0, 0);
+    // Прошлая контрольная точка не удалась — изменения, взятые ею, остались только в журнале
+    private boolean fullCheckpointRequired;
+
+    // Что изменилось с последней контрольной точки (только в режиме журнала)
+    private final Map<Integer, Task> dirtyTasks = new HashMap<>();
+    private final Map<Integer, Task> dirtyEpics = new HashMap<>();
+    private final Map<Integer, Task> dirtySubtasks = new HashMap<>();
+    private final Set<Integer> removedIds = new HashSet<>();
+    private final Set<TaskType> clearedTypes = EnumSet.noneOf(TaskType.class);
+    // Ставится при просмотре — по той же причине, что и changesSinceCheckpoint, атомарный
+    private final AtomicBoolean historyDirty = new AtomicBoolean();
+
+    // Классический режим: файл просмотров очищается только полным save(), а при одних чтениях
+    // без изменений рос бы без предела и целиком проигрывался при загрузке. Когда записей в нём
+    // становится больше historyCompactAt, он переписывается текущей историей
+    private static final int HISTORY_COMPACT_THRESHOLD = 1024;
+    private final AtomicLong historyLogRecords = new AtomicLong();
+    private final AtomicLong historyCompactAt = new AtomicLong(HISTORY_COMPACT_THRESHOLD);
+
+    // Время записи полного снимка в save(), контрольных точек и fsync файлов снимка и сегментов (в наносекундах)
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram checkpointLatency = new LatencyHistogram();
+    private final LatencyHistogram snapshotSyncLatency = new LatencyHistogram();
 
     public FileBackedTaskManager(File file) {
+        this(file, null);
+    }
+
+    // Режим журнала: file хранит полный снимок, а изменения дописываются в journalFile по одной записи
+    public FileBackedTaskManager(File file, File journalFile) {
+        this(file, journalFile, null);
+    }
+
+    // Режим журнала с групповым коммитом: изменения из разных потоков копятся не дольше maxCommitDelay
+    // и попадают на диск одной пачкой с одним fsync; null — каждая запись сбрасывается на диск сразу
+    public FileBackedTaskManager(File file, File journalFile, Duration maxCommitDelay) {
+        this(file, journalFile, maxCommitDelay, SnapshotFormat.BINARY);
+    }
+
+    // В режиме журнала снимок допускается только двоичный: CSV теряет время, длительность и текст
+    // после запятой, и контрольная точка выбросила бы то, что журнал сохранил
+    public FileBackedTaskManager(File file, File journalFile, Duration maxCommitDelay,
+                                 SnapshotFormat snapshotFormat) {
         super();
+        if (journalFile != null && snapshotFormat == SnapshotFormat.CSV) {
+            throw new IllegalArgumentException("В режиме журнала снимок пишется только в формате BINARY");
+        }
         this.file = file;
+        this.snapshotFormat = snapshotFormat;
+        this.journal = journalFile == null ? null : new TaskJournal(journalFile, maxCommitDelay);
+        this.historyLog = journal != null ? journal : new TaskJournal(historyFile(file));
     }
 
-    // Метод сохраняет все задачи, эпики и подзадачи в файл в формате CSV.
+    // Файл истории просмотров для классического режима
+    private static File historyFile(File file) {
+        return new File(file.getPath() + ".history");
+    }
+
+    // Метод сохраняет все задачи, эпики и подзадачи в файл (по умолчанию в двоичном формате,
+    // где у каждой записи своя контрольная сумма; CSV — только если выбран явно).
+    // Снимок пишется во временный файл и атомарно заменяет старый — сбой посреди записи его не портит.
+    // В режиме журнала после записи снимка журнал очищается — всё уже есть в снимке.
     // В случае ошибки — выбрасывает непроверяемое исключение ManagerSaveException.
     protected void save() {
-        try (var writer = new java.io.FileWriter(file)) {
-            writer.write("id,type,name,status,description,epic\n");
-
-            for (Task task : tasks.values()) {
-                writer.write(TaskConverter.toString(task) + "\n");
-            }
-            for (Epic epic : epics.values()) {
-                writer.write(TaskConverter.toString(epic) + "\n");
+        lock.writeLock().lock();
+        long started = System.nanoTime();
+        try {
+            WrittenFile snapshot = writeSnapshot(file, snapshotFormat, nextId.get(), tasks.values(),
+                    epics.values(), subtasks.values(), getHistory());
+            replaceFile(snapshot.temp(), file);
+            snapshotBase = snapshot.base();
+            snapshotGeneration++;
+            // Снимок уже содержит и задачи, и историю — журнал и файл просмотров больше не нужны
+            historyLog.truncate();
+            historyLogRecords.set(0);
+            if (journal != null) {
+                // Сегменты, не удалённые из-за сбоя, не применятся: у них отпечаток старого снимка
+                deleteSegments(1);
+                segmentCount = 0;
+                fullCheckpointRequired = false;
+                clearDirty();
+                journal.appendLazily(TaskJournal.nextId(nextId.get()));
             }
-            for (Subtask subtask : subtasks.values()) {
-                writer.write(TaskConverter.toString(subtask) + "\n");
+            saveLatency.recordValue(System.nanoTime() - started);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Записанный, но ещё не переименованный файл и его отпечаток
+    private record WrittenFile(File temp, String base) {
+    }
+
+    // Содержимое файла, которое пишется в поток
+    private interface FileContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // Пишет полный снимок в выбранном формате во временный файл рядом с target
+    private WrittenFile writeSnapshot(File target, SnapshotFormat format, int nextId, Collection<Task> tasks,
+                                             Collection<Epic> epics, Collection<Subtask> subtasks,
+                                             List<Task> history) {
+        return writeTemp(target, out -> {
+            if (format == SnapshotFormat.BINARY) {
+                writeBinarySnapshot(out, nextId, tasks, epics, subtasks, history);
+            } else {
+                writeCsvSnapshot(out, tasks, epics, subtasks, history);
             }
+        });
+    }
 
-            writer.write("\n"); // пустая строка перед историей
+    // Пишет дельта-сегмент: записи в формате журнала, каждая со своей контрольной суммой
+    private WrittenFile writeSegment(File target, List<String> records) {
+        return writeTemp(target, out -> {
+            var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            for (String record : records) {
+                writer.write(TaskJournal.seal(record));
+                writer.write('\n');
+            }
+            writer.flush();
+        });
+    }
 
-            List<Task> history = getHistory();
-            if (!history.isEmpty()) {
-                String historyLine = HistoryConverter.historyToString(history);
-                writer.write(historyLine);
+    // Пишет содержимое во временный файл рядом с target и сбрасывает его на диск.
+    // Возвращает временный файл, который затем атомарно переименовывается поверх target
+    private WrittenFile writeTemp(File target, FileContent content) {
+        File temp = null;
+        try {
+            File directory = target.getAbsoluteFile().getParentFile();
+            temp = Files.createTempFile(directory.toPath(), target.getName(), ".tmp").toFile();
+            CRC32C crc = new CRC32C();
+            try (var out = new FileOutputStream(temp)) {
+                content.writeTo(new CheckedOutputStream(out, crc));
+                long syncStarted = System.nanoTime();
+                out.getFD().sync();
+                snapshotSyncLatency.recordValue(System.nanoTime() - syncStarted);
             }
+            return new WrittenFile(temp, snapshotBase(temp.length(), crc.getValue()));
         } catch (Exception e) {
+            if (temp != null) {
+                temp.delete();
+            }
             throw new ManagerSaveException("Ошибка при сохранении в файл", e);
         }
     }
 
-    public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+    private static String snapshotBase(long size, long checksum) {
+        return size + ":" + Long.toHexString(checksum);
+    }
 
+    // Атомарно заменяет target записанным файлом и сбрасывает на диск запись каталога
+    private static void replaceFile(File temp, File target) {
         try {
-            List<String> lines = java.nio.file.Files.readAllLines(file.toPath());
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temp.delete();
+            throw new ManagerSaveException("Ошибка при замене файла " + target.getName(), e);
+        }
+        File directory = target.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Не все системы позволяют открыть каталог — само переименование от этого не перестаёт быть атомарным
+        }
+    }
 
-            int maxId = 0;
-            boolean isHistoryBlock = false;
+    // CSV: заголовок, задачи, эпики, подзадачи, пустая строка и история
+    private static void writeCsvSnapshot(OutputStream target, Collection<Task> tasks, Collection<Epic> epics,
+                                         Collection<Subtask> subtasks, List<Task> history) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+        writer.write("id,type,name,status,description,epic\n");
 
-            for (String line : lines) {
-                if (line.isBlank()) {
-                    isHistoryBlock = true;
-                    continue;
+        for (Task task : tasks) {
+            writer.write(TaskConverter.toString(task) + "\n");
+        }
+        for (Epic epic : epics) {
+            writer.write(TaskConverter.toString(epic) + "\n");
+        }
+        for (Subtask subtask : subtasks) {
+            writer.write(TaskConverter.toString(subtask) + "\n");
+        }
+
+        writer.write("\n"); // пустая строка перед историей
+
+        if (!history.isEmpty()) {
+            String historyLine = HistoryConverter.historyToString(history);
+            writer.write(historyLine);
+        }
+        writer.flush();
+    }
+
+    // Двоичный формат: сигнатура, версия, следующий id, число записей, записи задач
+    // (сначала задачи, затем эпики, затем подзадачи), число id в истории и сами id
+    private static void writeBinarySnapshot(OutputStream target, int nextId, Collection<Task> tasks,
+                                            Collection<Epic> epics, Collection<Subtask> subtasks,
+                                            List<Task> history) throws IOException {
+        var out = new BufferedOutputStream(target, 1 << 16);
+        out.write(BinaryTaskConverter.MAGIC);
+        out.write(BinaryTaskConverter.VERSION);
+        BinaryTaskConverter.writeVarInt(out, nextId);
+        BinaryTaskConverter.writeVarInt(out, tasks.size() + epics.size() + subtasks.size());
+        for (Task task : tasks) {
+            BinaryTaskConverter.writeTask(out, task);
+        }
+        for (Epic epic : epics) {
+            BinaryTaskConverter.writeTask(out, epic);
+        }
+        for (Subtask subtask : subtasks) {
+            BinaryTaskConverter.writeTask(out, subtask);
+        }
+        BinaryTaskConverter.writeVarInt(out, history.size());
+        for (Task task : history) {
+            BinaryTaskConverter.writeVarInt(out, task.getId());
+        }
+        out.flush();
+    }
+
+    // Контрольная точка: переносит накопленный журнал в файлы снимка и отбрасывает его,
+    // чтобы время запуска зависело от размера снимка и короткого хвоста журнала.
+    // Обычно пишется только дельта-сегмент с изменёнными задачами; полный снимок — когда сегментов
+    // набралось много или изменилась заметная часть задач.
+    // Под блокировкой записи только собираются изменения и переключается файл журнала —
+    // сам файл пишется на диск параллельно с новыми изменениями.
+    // Статус и время эпиков в снимке могут отстать от журнала, но они пересчитываются при загрузке.
+    public void checkpoint() {
+        if (journal == null) {
+            save();
+            return;
+        }
+        synchronized (checkpointLock) {
+            long started = System.nanoTime();
+            List<Task> taskCopy = null;
+            List<Epic> epicCopy = null;
+            List<Subtask> subtaskCopy = null;
+            List<Task> history = null;
+            List<String> segment = null;
+            int snapshotNextId;
+            long generation;
+            lock.writeLock().lock();
+            try {
+                if (changesSinceCheckpoint.getAndSet(0) == 0) {
+                    return; // с прошлого снимка ничего не менялось
+                }
+                if (needsFullCheckpoint()) {
+                    taskCopy = new ArrayList<>(tasks.values());
+                    epicCopy = new ArrayList<>(epics.values());
+                    subtaskCopy = new ArrayList<>(subtasks.values());
+                    history = getHistory();
+                    clearDirty();
+                } else {
+                    segment = drainDirty();
                 }
+                snapshotNextId = nextId.get();
+                generation = snapshotGeneration;
+                journal.rotate();
+                journal.appendLazily(TaskJournal.nextId(nextId.get()));
+            } finally {
+                lock.writeLock().unlock();
+            }
 
-                if (!isHistoryBlock) {
-                    if (line.startsWith("id,")) continue; // пропускаем заголовок
-
-                    Task task = TaskConverter.fromString(line);
-                    int id = task.getId();
-                    maxId = Math.max(maxId, id);
-
-                    switch (task) {
-                        case Epic epic -> manager.epics.put(id, epic);
-                        case Subtask subtask -> {
-                            manager.subtasks.put(id, subtask);
-                            Epic epic = manager.epics.get(subtask.getEpicId());
-                            if (epic != null) {
-                                epic.addSubtaskId(id);
-                            }
-                        }
-                        default -> manager.tasks.put(id, task);
+            try {
+                WrittenFile written = segment == null
+                        ? writeSnapshot(file, snapshotFormat, snapshotNextId, taskCopy, epicCopy, subtaskCopy, history)
+                        : writeSegment(segmentFile(segmentCount + 1), segment);
+
+                lock.writeLock().lock();
+                try {
+                    if (generation != snapshotGeneration) {
+                        // Пока писали, save() уже записал более свежий снимок — наш устарел
+                        written.temp().delete();
+                        return;
                     }
-                } else {
-                    List<Integer> historyIds = HistoryConverter.historyFromString(line);
-                    for (Integer id : historyIds) {
-                        if (manager.tasks.containsKey(id)) {
-                            manager.historyManager.add(manager.tasks.get(id));
-                        } else if (manager.subtasks.containsKey(id)) {
-                            manager.historyManager.add(manager.subtasks.get(id));
-                        } else if (manager.epics.containsKey(id)) {
-                            manager.historyManager.add(manager.epics.get(id));
-                        }
+                    if (segment == null) {
+                        replaceFile(written.temp(), file);
+                        snapshotBase = written.base();
+                        deleteSegments(1);
+                        segmentCount = 0;
+                        fullCheckpointRequired = false;
+                    } else {
+                        replaceFile(written.temp(), segmentFile(segmentCount + 1));
+                        segmentCount++;
                     }
+                    snapshotGeneration++;
+                    journal.dropRotated();
+                    checkpointLatency.recordValue(System.nanoTime() - started);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (ManagerSaveException e) {
+                // Взятые изменения остались только в отложенном журнале — следующая точка запишет всё
+                lock.writeLock().lock();
+                try {
+                    fullCheckpointRequired = true;
+                    changesSinceCheckpoint.incrementAndGet();
+                } finally {
+                    lock.writeLock().unlock();
                 }
+                throw e;
+            }
+        }
+    }
+
+    // Полный снимок нужен, если сегментов слишком много, прошлая точка не удалась
+    // или изменений столько, что сегмент вышел бы не меньше половины снимка
+    private boolean needsFullCheckpoint() {
+        if (fullCheckpointRequired || segmentCount >= MAX_SEGMENTS) {
+            return true;
+        }
+        int changed = dirtyTasks.size() + dirtyEpics.size() + dirtySubtasks.size() + removedIds.size();
+        return changed * 2 >= tasks.size() + epics.size() + subtasks.size();
+    }
+
+    // Превращает накопленные изменения в записи сегмента и сбрасывает их.
+    // Порядок: отпечаток снимка, массовые удаления, удаления, затем актуальные версии задач,
+    // эпиков и подзадач (подзадачи после эпиков, чтобы привязаться к ним), история и следующий id
+    private List<String> drainDirty() {
+        List<String> records = new ArrayList<>();
+        records.add(TaskJournal.base(snapshotBase));
+        for (TaskType type : clearedTypes) {
+            records.add(TaskJournal.clear(type));
+        }
+        for (int id : removedIds) {
+            records.add(TaskJournal.delete(id));
+        }
+        for (Map<Integer, Task> dirty : List.of(dirtyTasks, dirtyEpics, dirtySubtasks)) {
+            for (Task task : dirty.values()) {
+                records.add(TaskJournal.put(task));
+            }
+        }
+        if (historyDirty.get()) {
+            for (Task task : getHistory()) {
+                records.add(TaskJournal.view(task.getId()));
+            }
+        }
+        records.add(TaskJournal.nextId(nextId.get()));
+        clearDirty();
+        return records;
+    }
+
+    private void clearDirty() {
+        dirtyTasks.clear();
+        dirtyEpics.clear();
+        dirtySubtasks.clear();
+        removedIds.clear();
+        clearedTypes.clear();
+        historyDirty.set(false);
+    }
+
+    @Override
+    protected void markChanged(Task task) {
+        if (journal == null) {
+            return; // в классическом режиме каждое изменение и так пишет полный снимок
+        }
+        if (task instanceof Epic) {
+            dirtyEpics.put(task.getId(), task);
+        } else if (task instanceof Subtask) {
+            dirtySubtasks.put(task.getId(), task);
+        } else {
+            dirtyTasks.put(task.getId(), task);
+        }
+    }
+
+    @Override
+    protected void markRemoved(int id) {
+        if (journal == null) {
+            return;
+        }
+        dirtyTasks.remove(id);
+        dirtyEpics.remove(id);
+        dirtySubtasks.remove(id);
+        removedIds.add(id);
+    }
+
+    @Override
+    protected void markCleared(TaskType type) {
+        if (journal == null) {
+            return;
+        }
+        switch (type) {
+            case TASK -> dirtyTasks.clear();
+            case EPIC -> dirtyEpics.clear();
+            case SUBTASK -> dirtySubtasks.clear();
+        }
+        clearedTypes.add(type);
+    }
+
+    // Файл n-го дельта-сегмента
+    private File segmentFile(int n) {
+        return new File(file.getPath() + ".seg" + n);
+    }
+
+    // Удаляет сегменты начиная с n-го
+    private void deleteSegments(int from) {
+        try {
+            for (int n = from; segmentFile(n).exists(); n++) {
+                Files.delete(segmentFile(n).toPath());
             }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при удалении сегмента снимка", e);
+        }
+    }
 
-            manager.nextId = maxId + 1;
+    // Проигрывает сегменты поверх снимка по порядку. Сегмент с чужим отпечатком остался от снимка,
+    // который уже переписан целиком (сбой между записью снимка и удалением сегментов), — он и
+    // все следующие за ним удаляются
+    private void readSegments() {
+        for (int n = 1; segmentFile(n).exists(); n++) {
+            List<String> records = new TaskJournal(segmentFile(n)).readAll();
+            if (records.isEmpty() || !records.getFirst().equals(TaskJournal.base(snapshotBase))) {
+                deleteSegments(n);
+                return;
+            }
+            for (String record : records.subList(1, records.size())) {
+                replay(record);
+            }
+            segmentCount = n;
+        }
+    }
 
-            // Обновляем время и длительность у всех эпиков после загрузки
-            for (Epic epic : manager.epics.values()) {
-                manager.updateEpicTimeAndDuration(epic);
+    // Запускает периодические контрольные точки в фоновом потоке
+    public synchronized void startCheckpointing(Duration interval) {
+        if (checkpointer != null) {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (ManagerSaveException e) {
+                // Следующая попытка будет через interval, журнал при этом не теряется
+                System.out.println("Ошибка при создании контрольной точки: " + e.getMessage());
             }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, null);
+    }
+
+    // Загружает снимок из file, а затем проигрывает поверх него записи журнала journalFile
+    public static FileBackedTaskManager loadFromFile(File file, File journalFile) {
+        return loadFromFile(file, journalFile, null);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, File journalFile, Duration maxCommitDelay) {
+        return loadFromFile(file, journalFile, maxCommitDelay, SnapshotFormat.BINARY);
+    }
+
+    // snapshotFormat — формат следующих снимков; формат читаемого снимка определяется автоматически
+    public static FileBackedTaskManager loadFromFile(File file, File journalFile, Duration maxCommitDelay,
+                                                     SnapshotFormat snapshotFormat) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, journalFile, maxCommitDelay, snapshotFormat);
+
+        try {
+            // В режиме журнала снимка может ещё не быть — тогда всё состояние лежит в журнале
+            if (journalFile == null || file.exists()) {
+                manager.readSnapshot();
+            }
+            if (journalFile != null) {
+                manager.readSegments();
+            }
+            // Всё прочитанное до сих пор уже лежит в снимке и сегментах; в следующую контрольную точку
+            // попадут только изменения из журнала
+            manager.clearDirty();
+            // Просмотры или изменения, сделанные после последнего снимка
+            List<String> records = manager.historyLog.readAll();
+            for (String record : records) {
+                if (!record.isBlank()) {
+                    manager.replay(record);
+                }
+            }
+            if (journalFile != null && !records.isEmpty()) {
+                manager.changesSinceCheckpoint.set(records.size());
+                manager.historyDirty.set(true);
+            } else if (journalFile == null) {
+                manager.historyLogRecords.set(records.size());
+            }
+
+            // Обновляем статус, время и длительность у всех эпиков после загрузки
+            manager.rebuildIndexes();
 
         } catch (Exception e) {
             throw new ManagerSaveException("Ошибка при загрузке из файла", e);
@@ -102,96 +562,566 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return manager;
     }
 
+    // Читает полный снимок, определяя формат по сигнатуре в начале файла.
+    // Файл читается через FileChannel.read в один буфер размером с файл, и записи разбираются прямо
+    // из него — без списка строк на весь файл. В память файл не отображается: отображение держит файл
+    // до сборки мусора, и на Windows следующий save() или контрольная точка не смогли бы заменить его
+    // через ATOMIC_MOVE. Ограничение: буфер — один массив, поэтому снимок не больше 2 ГБ (Integer.MAX_VALUE)
+    private void readSnapshot() throws IOException {
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ нельзя прочитать одним буфером");
+            }
+            content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    throw new IOException("Снимок укоротился во время чтения");
+                }
+            }
+            content.flip();
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(content.duplicate());
+        snapshotBase = snapshotBase(content.limit(), checksum.getValue());
+        if (isBinarySnapshot(content)) {
+            readBinarySnapshot(content);
+        } else {
+            readCsvSnapshot(content);
+        }
+    }
+
+    private static boolean isBinarySnapshot(ByteBuffer content) {
+        if (content.limit() < BinaryTaskConverter.MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < BinaryTaskConverter.MAGIC.length; i++) {
+            if (content.get(i) != BinaryTaskConverter.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Двоичный снимок: см. writeBinarySnapshot.
+    // Сначала границы записей находятся по префиксам длины (без разбора), затем куски
+    // декодируются параллельно, а в хранилища задачи кладутся уже в одном потоке по порядку
+    private void readBinarySnapshot(ByteBuffer in) {
+        in.position(BinaryTaskConverter.MAGIC.length);
+        int version = in.get();
+        if (version > BinaryTaskConverter.VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия снимка: " + version);
+        }
+        nextId.accumulateAndGet(BinaryTaskConverter.readVarInt(in), Math::max);
+        int count = BinaryTaskConverter.readVarInt(in);
+
+        List<LoadChunk> chunks = new ArrayList<>();
+        int chunkStart = in.position();
+        int chunkRecords = 0;
+        boolean truncated = false;
+        for (int i = 0; i < count; i++) {
+            int recordStart = in.position();
+            try {
+                BinaryTaskConverter.skipTask(in, version);
+            } catch (RuntimeException e) {
+                // Префикс длины повреждён или указывает за конец файла — дальше границ не найти
+                in.position(recordStart);
+                truncated = true;
+                break;
+            }
+            chunkRecords++;
+            if (in.position() - chunkStart >= LOAD_CHUNK_SIZE) {
+                chunks.add(new LoadChunk(chunkStart, in.position(), chunkRecords));
+                chunkStart = in.position();
+                chunkRecords = 0;
+            }
+        }
+        if (chunkRecords > 0) {
+            chunks.add(new LoadChunk(chunkStart, in.position(), chunkRecords));
+        }
+
+        boolean complete = restoreAll(decodeChunks(chunks, chunk -> {
+            ByteBuffer view = in.duplicate(); // у каждого потока своя позиция чтения
+            view.position(chunk.start());
+            List<Task> decoded = new ArrayList<>(chunk.records());
+            for (int i = 0; i < chunk.records(); i++) {
+                try {
+                    decoded.add(BinaryTaskConverter.readTask(view, version));
+                } catch (RuntimeException e) {
+                    return new DecodedChunk(decoded, false);
+                }
+            }
+            return new DecodedChunk(decoded, true);
+        }));
+        if (truncated || !complete) {
+            // Всё, что шло после повреждённой записи, не восстанавливаем: снимок мог быть записан не до конца
+            System.err.println("Снимок " + file + " повреждён, загружены записи до первой испорченной");
+            return;
+        }
+
+        int historySize = BinaryTaskConverter.readVarInt(in);
+        for (int i = 0; i < historySize; i++) {
+            restoreView(BinaryTaskConverter.readVarInt(in));
+        }
+    }
+
+    // CSV-снимок: задачи, пустая строка и строка истории.
+    // Строки не выделяются — записи разбираются по границам в буфере. Блок задач режется
+    // по переводам строк на куски, которые декодируются параллельно
+    private void readCsvSnapshot(ByteBuffer in) {
+        List<LoadChunk> chunks = new ArrayList<>();
+        int limit = in.limit();
+        int lineStart = 0;
+        int chunkStart = 0;
+        int historyStart = limit;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && in.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = Math.min(lineEnd + 1, limit);
+            if (lineEnd > lineStart && in.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            if (isBlank(in, lineStart, lineEnd)) {
+                historyStart = next;
+                break;
+            }
+            if (lineStart == chunkStart && isHeader(in, lineStart, lineEnd)) {
+                chunkStart = next; // пропускаем заголовок
+            } else if (next - chunkStart >= LOAD_CHUNK_SIZE) {
+                chunks.add(new LoadChunk(chunkStart, next, 0));
+                chunkStart = next;
+            }
+            lineStart = next;
+        }
+        int tasksEnd = Math.min(lineStart, limit);
+        if (tasksEnd > chunkStart) {
+            chunks.add(new LoadChunk(chunkStart, tasksEnd, 0));
+        }
+
+        restoreAll(decodeChunks(chunks, chunk -> {
+            List<Task> decoded = new ArrayList<>();
+            forEachLine(in, chunk.start(), chunk.end(), (start, end) -> {
+                if (!isBlank(in, start, end)) {
+                    decoded.add(TaskConverter.fromBytes(in, start, end));
+                }
+            });
+            return new DecodedChunk(decoded, true);
+        }));
+
+        forEachLine(in, historyStart, limit, (start, end) ->
+                HistoryConverter.historyFromBytes(in, start, end, this::restoreView));
+    }
+
+    // Вызывает action для каждой строки между from и to (без перевода строки и \r)
+    private static void forEachLine(ByteBuffer in, int from, int to, LineAction action) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && in.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && in.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            action.accept(lineStart, lineEnd);
+            lineStart = next;
+        }
+    }
+
+    // Обработчик одной строки в буфере
+    private interface LineAction {
+        void accept(int start, int end);
+    }
+
+    // Кусок снимка для параллельного разбора: байты [start, end) и число записей (если известно)
+    private record LoadChunk(int start, int end, int records) {
+    }
+
+    // Результат декодирования куска: complete = false, если кусок оборвался на повреждённой записи
+    private record DecodedChunk(List<Task> tasks, boolean complete) {
+    }
+
+    // Декодирует куски: большие снимки — параллельно в общем ForkJoinPool, маленькие — в текущем потоке.
+    // Порядок кусков в результате сохраняется
+    private static List<DecodedChunk> decodeChunks(List<LoadChunk> chunks,
+                                                   Function<LoadChunk, DecodedChunk> decoder) {
+        long totalBytes = 0;
+        for (LoadChunk chunk : chunks) {
+            totalBytes += chunk.end() - chunk.start();
+        }
+        if (chunks.size() < 2 || totalBytes < PARALLEL_LOAD_THRESHOLD) {
+            return chunks.stream().map(decoder).toList();
+        }
+        return chunks.parallelStream().map(decoder).toList();
+    }
+
+    // Однопоточный проход после декодирования: раскладывает задачи по хранилищам
+    // и привязывает подзадачи к эпикам в исходном порядке записей
+    // Возвращает false, если один из кусков был повреждён; куски после него не применяются
+    private boolean restoreAll(List<DecodedChunk> decodedChunks) {
+        for (DecodedChunk decoded : decodedChunks) {
+            for (Task task : decoded.tasks()) {
+                restore(task);
+            }
+            if (!decoded.complete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(ByteBuffer in, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(in.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHeader(ByteBuffer in, int start, int end) {
+        return end - start >= 3 && in.get(start) == 'i' && in.get(start + 1) == 'd' && in.get(start + 2) == ',';
+    }
+
+    // Кладёт загруженную задачу в нужное хранилище с её собственным id
+    private void restore(Task task) {
+        int id = task.getId();
+        nextId.accumulateAndGet(id + 1, Math::max);
+
+        Task previous = registry.put(task);
+        if (task instanceof Epic epic && previous instanceof Epic oldEpic) {
+            // Повторная запись эпика не должна терять уже привязанные подзадачи
+            oldEpic.getSubtaskIds().forEachInt(epic::addSubtaskId);
+        } else if (task instanceof Subtask subtask && !(previous instanceof Subtask)) {
+            // Повторная запись подзадачи уже привязана к эпику — второй раз id не добавляем
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtaskId(id);
+            }
+        }
+    }
+
+    // Восстанавливает задачу из записи журнала или сегмента и отмечает её для следующей контрольной точки
+    private void replayPut(Task task) {
+        restore(task);
+        markChanged(task);
+    }
+
+    // Добавляет в историю задачу любого типа по id — одним обращением к реестру
+    private void restoreView(int id) {
+        Task task = registry.get(id);
+        if (task != null) {
+            historyManager.add(task);
+        }
+    }
+
+    // Применяет одну запись журнала к состоянию менеджера (без повторной записи в журнал)
+    private void replay(String record) {
+        int comma = record.indexOf(',');
+        String operation = record.substring(0, comma);
+        String payload = record.substring(comma + 1);
+
+        switch (operation) {
+            case TaskJournal.PUT -> replayPut(TaskConverter.fromString(payload));
+            case TaskJournal.PUT_BINARY -> replayPut(BinaryTaskConverter.fromBytes(Base64.getDecoder().decode(payload)));
+            case TaskJournal.DELETE -> {
+                int id = Integer.parseInt(payload);
+                TaskType type = registry.typeOf(id);
+                if (type != null) {
+                    switch (type) {
+                        case TASK -> super.removeTask(id);
+                        case EPIC -> super.removeEpic(id);
+                        case SUBTASK -> super.removeSubtask(id);
+                    }
+                }
+            }
+            case TaskJournal.CLEAR -> {
+                switch (TaskType.valueOf(payload)) {
+                    case TASK -> super.removeAllTasks();
+                    case EPIC -> super.removeAllEpics();
+                    case SUBTASK -> super.removeAllSubtasks();
+                }
+            }
+            case TaskJournal.VIEW -> restoreView(Integer.parseInt(payload));
+            case TaskJournal.NEXT_ID -> nextId.accumulateAndGet(Integer.parseInt(payload), Math::max);
+            default -> throw new IllegalArgumentException("Неизвестная запись журнала: " + record);
+        }
+    }
+
+    // Фиксирует добавление или изменение задачи: в режиме журнала — одной записью, иначе — полным сохранением.
+    // Возвращает future, который завершится, когда изменение окажется на диске
+    private CompletableFuture<Void> persistPut(Task task) {
+        if (journal != null) {
+            changesSinceCheckpoint.incrementAndGet();
+            return journal.append(TaskJournal.put(task));
+        }
+        save();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Фиксирует удаление задачи по id
+    private CompletableFuture<Void> persistDelete(int id) {
+        if (journal != null) {
+            changesSinceCheckpoint.incrementAndGet();
+            return journal.append(TaskJournal.delete(id));
+        }
+        save();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Фиксирует удаление всех задач одного типа
+    private CompletableFuture<Void> persistClear(TaskType type) {
+        if (journal != null) {
+            changesSinceCheckpoint.incrementAndGet();
+            return journal.append(TaskJournal.clear(type));
+        }
+        save();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Ждёт, пока изменение станет долговечным. Вызывается уже без блокировки менеджера,
+    // чтобы другие потоки успели попасть в тот же групповой коммит
+    private void awaitCommit(CompletableFuture<Void> commit) {
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ManagerSaveException saveException) {
+                throw saveException;
+            }
+            throw new ManagerSaveException("Ошибка при сохранении в журнал", e.getCause());
+        }
+    }
+
+    // Фиксирует просмотр задачи: одна короткая запись без fsync вместо переписывания всего файла.
+    // С обычной историей вызывается под замком истории, и порядок записей совпадает с порядком в истории.
+    // С конкурентной историей просмотр и запись не атомарны: одновременные просмотры разных потоков
+    // могут лечь в файл в другом порядке, чем в историю, и после перезапуска поменяться местами.
+    // Гарантируется только, что просмотры одного потока сохраняют свой порядок, а полный снимок
+    // и контрольная точка записывают историю в её собственном порядке
+    @Override
+    protected void markViewed(Task task) {
+        changesSinceCheckpoint.incrementAndGet();
+        historyDirty.set(true);
+        historyLog.appendLazily(TaskJournal.view(task.getId()));
+        if (journal == null && historyLogRecords.incrementAndGet() > historyCompactAt.get()) {
+            compactHistoryLog();
+        }
+    }
+
+    // Переписывает файл просмотров текущей историей. Старые записи откладываются и удаляются только
+    // после записи новых: если сбой случится посередине, при загрузке отложенные прочитаются первыми,
+    // а новые их перекроют. Другие просмотры на это время ждут на мониторе файла, поэтому их записи
+    // лягут уже после сжатой истории. Следующее сжатие — когда записей станет вдвое больше истории
+    private void compactHistoryLog() {
+        synchronized (historyLog) {
+            if (historyLogRecords.get() <= historyCompactAt.get()) {
+                return; // другой поток уже сжал файл
+            }
+            List<Task> history = getHistory();
+            historyLog.rotate();
+            for (Task viewed : history) {
+                historyLog.appendLazily(TaskJournal.view(viewed.getId()));
+            }
+            historyLog.dropRotated();
+            historyLogRecords.set(history.size());
+            historyCompactAt.set(Math.max(HISTORY_COMPACT_THRESHOLD, 2L * history.size()));
+        }
+    }
+
+    // Кроме показателей менеджера — время записи снимков и контрольных точек и время fsync
+    @Override
+    public void registerMetrics(MetricsRegistry metrics) {
+        super.registerMetrics(metrics);
+        String saveHelp = "Время записи полного снимка (save) и контрольной точки (checkpoint)";
+        metrics.histogram("taskmanager_save_seconds", saveHelp, MetricsRegistry.labels("kind", "save"), saveLatency);
+        metrics.histogram("taskmanager_save_seconds", saveHelp, MetricsRegistry.labels("kind", "checkpoint"),
+                checkpointLatency);
+        String syncHelp = "Время fsync файлов снимка и журнала";
+        metrics.histogram("taskmanager_fsync_seconds", syncHelp, MetricsRegistry.labels("file", "snapshot"),
+                snapshotSyncLatency);
+        if (journal != null) {
+            metrics.histogram("taskmanager_fsync_seconds", syncHelp, MetricsRegistry.labels("file", "journal"),
+                    journal.getSyncLatency());
+        }
+    }
+
+    // Останавливает фоновые контрольные точки и пишущий поток журнала,
+    // дождавшись записи всех накопленных изменений
+    public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = checkpointer;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        historyLog.close();
+    }
+
     @Override
     public void addTask(Task task) {
-        super.addTask(task);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.addTask(task);
+            commit = persistPut(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.updateTask(task);
+            commit = persistPut(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void removeTask(int id) {
-        super.removeTask(id);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.removeTask(id);
+            commit = persistDelete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void removeAllTasks() {
-        super.removeAllTasks();
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.removeAllTasks();
+            commit = persistClear(TaskType.TASK);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void addEpic(Epic epic) {
-        super.addEpic(epic);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.addEpic(epic);
+            commit = persistPut(epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.updateEpic(epic);
+            commit = persistPut(epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void removeEpic(int id) {
-        super.removeEpic(id);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.removeEpic(id);
+            commit = persistDelete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void removeAllEpics() {
-        super.removeAllEpics();
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.removeAllEpics();
+            commit = persistClear(TaskType.EPIC);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void addSubtask(Subtask subtask) {
-        super.addSubtask(subtask);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.addSubtask(subtask);
+            commit = persistPut(subtask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.updateSubtask(subtask);
+            commit = persistPut(subtask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void removeSubtask(int id) {
-        super.removeSubtask(id);
-        save();
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.removeSubtask(id);
+            commit = persistDelete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
 
     @Override
     public void removeAllSubtasks() {
-        super.removeAllSubtasks();
-        save();
-    }
-
-    @Override
-    public Task getTaskById(int id) {
-        Task task = super.getTaskById(id);
-        save();
-        return task;
-    }
-
-    @Override
-    public Epic getEpicById(int id) {
-        Epic epic = super.getEpicById(id);
-        save();
-        return epic;
-    }
-
-    @Override
-    public Subtask getSubtaskById(int id) {
-        Subtask subtask = super.getSubtaskById(id);
-        save();
-        return subtask;
+        CompletableFuture<Void> commit;
+        lock.writeLock().lock();
+        try {
+            super.removeAllSubtasks();
+            commit = persistClear(TaskType.SUBTASK);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitCommit(commit);
     }
-}
\ No newline at end of file
+}
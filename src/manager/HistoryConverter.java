@@ -2,8 +2,10 @@ package manager;
 
 import model.Task;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 public class HistoryConverter {
 
@@ -27,4 +29,17 @@ public class HistoryConverter {
         }
         return history;
     }
-}
\ No newline at end of file
+
+    // Разбирает строку ID прямо из буфера между start и end и передаёт каждый id в consumer
+    public static void historyFromBytes(ByteBuffer in, int start, int end, IntConsumer consumer) {
+        int from = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || in.get(i) == ',') {
+                if (i > from) {
+                    consumer.accept(TaskConverter.parseInt(in, from, i));
+                }
+                from = i + 1;
+            }
+        }
+    }
+}
@@ -1,12 +1,90 @@
 package manager;
 
 import model.Task;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface HistoryManager {
+    // Курсор "с самого последнего просмотра" и признак того, что страниц больше нет
+    int NO_CURSOR = -1;
+
+    // Область, в которой вызовы истории из текущего потока относятся к одному клиенту (см. forClient)
+    interface ClientScope extends AutoCloseable {
+        // Область, которая ничего не меняет
+        ClientScope NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+
     void add(Task task);
 
     List<Task> getHistory();
 
     void remove(int id);
+
+    // Обходит историю от первого просмотра к последнему, не собирая её в список.
+    // visitor не должен менять историю
+    default void forEach(Consumer<? super Task> visitor) {
+        getHistory().forEach(visitor);
+    }
+
+    // Обходит не больше limit задач от последнего просмотра к первому, начиная с задачи, которая идёт
+    // перед cursor (NO_CURSOR — с самого последнего просмотра). Возвращает курсор следующей страницы —
+    // id последней отданной задачи — или NO_CURSOR, если дальше задач нет или cursor уже не в истории
+    default int visitRecent(int cursor, int limit, Consumer<? super Task> visitor) {
+        List<Task> history = getHistory();
+        int index = history.size() - 1;
+        if (cursor != NO_CURSOR) {
+            index = -1;
+            for (int i = history.size() - 1; i >= 0; i--) {
+                if (history.get(i).getId() == cursor) {
+                    index = i - 1;
+                    break;
+                }
+            }
+        }
+        int visited = 0;
+        for (; index >= 0 && visited < limit; index--, visited++) {
+            visitor.accept(history.get(index));
+        }
+        return visited > 0 && index >= 0 ? history.get(index + 1).getId() : NO_CURSOR;
+    }
+
+    // Id не больше k самых просматриваемых задач (по затухающим счётчикам просмотров), самая частая — первой
+    List<Integer> getMostViewed(int k);
+
+    // Сколько задач сейчас в истории
+    default int size() {
+        int[] size = new int[1];
+        forEach(task -> size[0]++);
+        return size[0];
+    }
+
+    // true — реализация сама упорядочивает одновременные вызовы, и менеджеру задач не нужно
+    // брать общий замок истории (разные клиенты тогда не ждут друг друга)
+    default boolean isConcurrent() {
+        return false;
+    }
+
+    // Направляет вызовы этой истории из текущего потока в раздел клиента, пока область не закрыта
+    // (см. PartitionedHistoryManager). Обычная история одна на всех, и область ничего не меняет
+    default ClientScope forClient(String clientId) {
+        return ClientScope.NONE;
+    }
+
+    // Последние limit просмотров, самый свежий — первым
+    default List<Task> getRecent(int limit) {
+        return getPage(NO_CURSOR, limit);
+    }
+
+    // Страница истории после cursor (см. visitRecent), самый свежий просмотр — первым
+    default List<Task> getPage(int cursor, int limit) {
+        List<Task> page = new ArrayList<>();
+        visitRecent(cursor, limit, page::add);
+        return page;
+    }
 }
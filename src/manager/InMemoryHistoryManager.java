@@ -1,10 +1,17 @@
 package manager;
 
 import model.Task;
+import util.IntObjectHashMap;
 
 import java.util.*;
+import java.util.function.Consumer;
 
+// История просмотров: двусвязный список в порядке просмотра и таблица id -> узел.
+// Повторный просмотр переносит задачу в конец. С ограничением ёмкости при переполнении
+// вытесняется задача, которую дольше всех не смотрели (голова списка), — за O(1)
 public class InMemoryHistoryManager implements HistoryManager {
+    // Ёмкость по умолчанию — без ограничения
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
 
     // Узел двусвязного списка истории
     private static class Node {
@@ -24,7 +31,22 @@ public class InMemoryHistoryManager implements HistoryManager {
     private Node tail;
 
     // Храним соответствие: id задачи - узел в списке
-    private final Map<Integer, Node> nodeMap = new HashMap<>();
+    private final IntObjectHashMap<Node> nodeMap = new IntObjectHashMap<>();
+    // Сколько задач история держит самое большее
+    private final int capacity;
+    // Частота просмотров — для самых просматриваемых задач
+    private final ViewFrequency frequency = new ViewFrequency();
+
+    public InMemoryHistoryManager() {
+        this(UNBOUNDED);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть положительной: " + capacity);
+        }
+        this.capacity = capacity;
+    }
 
     // Добавляем задачу в конец истории
     @Override
@@ -32,14 +54,74 @@ public class InMemoryHistoryManager implements HistoryManager {
         if (task == null) {
             return;
         }
-        remove(task.getId());
+        frequency.record(task.getId());
+        Node node = nodeMap.get(task.getId());
+        if (node != null) {
+            // Уже в истории — переносим существующий узел в конец, без новой записи в таблице
+            node.task = task;
+            if (node != tail) {
+                removeNode(node);
+                node.prev = tail;
+                tail.next = node;
+                tail = node;
+            }
+            return;
+        }
         linkLast(task);
-        nodeMap.put(task.getId(), tail);
+        if (nodeMap.size() > capacity) {
+            // Вытесняем задачу, которую дольше всех не смотрели (её частота просмотров остаётся)
+            Node eldest = head;
+            nodeMap.remove(eldest.task.getId());
+            removeNode(eldest);
+        }
+    }
+
+    // Обход от головы списка — без промежуточного списка
+    @Override
+    public void forEach(Consumer<? super Task> visitor) {
+        for (Node node = head; node != null; node = node.next) {
+            visitor.accept(node.task);
+        }
+    }
+
+    // Обход от хвоста списка; узел курсора находится по таблице за O(1), так что страница стоит O(limit)
+    @Override
+    public int visitRecent(int cursor, int limit, Consumer<? super Task> visitor) {
+        Node node = tail;
+        if (cursor != NO_CURSOR) {
+            Node after = nodeMap.get(cursor);
+            if (after == null) {
+                return NO_CURSOR;
+            }
+            node = after.prev;
+        }
+        Node last = null;
+        for (int visited = 0; node != null && visited < limit; visited++) {
+            visitor.accept(node.task);
+            last = node;
+            node = node.prev;
+        }
+        return last != null && last.prev != null ? last.task.getId() : NO_CURSOR;
+    }
+
+    @Override
+    public List<Integer> getMostViewed(int k) {
+        return frequency.getTop(k);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int size() {
+        return nodeMap.size();
     }
 
     // Удаляем задачу из истории по id
     @Override
     public void remove(int id) {
+        frequency.remove(id);
         Node node = nodeMap.remove(id);
         if (node != null) {
             removeNode(node);
@@ -87,7 +169,7 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     // Возвращаем все задачи из истории в виде списка
     private List<Task> getTasks() {
-        List<Task> result = new ArrayList<>();
+        List<Task> result = new ArrayList<>(nodeMap.size());
         Node current = head;
         while (current != null) {
             result.add(current.task);
@@ -1,32 +1,106 @@
 package manager;
 
 import model.*;
+import util.IntObjectHashMap;
+import util.MetricsRegistry;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.TreeSet;
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Менеджер можно вызывать из нескольких потоков (например, из пула HTTP-сервера).
+// Изменения идут под блокировкой записи — так эпик и его подзадачи меняются вместе,
+// чтение — под блокировкой чтения и не мешает другим читателям.
+// Задачи и подзадачи при обновлении заменяются новыми объектами, а эпик меняется на месте,
+// поэтому наружу эпики отдаются копиями, снятыми под блокировкой чтения
 public class InMemoryTaskManager implements TaskManager {
-    // вот тут будем хранить задачи всех типов + история
-    protected final HashMap<Integer, Task> tasks = new HashMap<>();
-    protected final HashMap<Integer, Epic> epics = new HashMap<>();
-    protected final HashMap<Integer, Subtask> subtasks = new HashMap<>();
+    // вот тут будем хранить задачи всех типов + история (только под lock)
+    // Все сущности по id; менять — только через реестр, поля ниже — его таблицы по типам (только чтение)
+    protected final TaskRegistry registry = new TaskRegistry();
+    protected final TaskRegistry.View<Task> tasks = registry.tasks();
+    protected final TaskRegistry.View<Epic> epics = registry.epics();
+    protected final TaskRegistry.View<Subtask> subtasks = registry.subtasks();
     protected HistoryManager historyManager;  // изменено с final на protected
 
     // Счётчик Id для всех новых задач
-    protected int nextId = 1;
+    protected final AtomicInteger nextId = new AtomicInteger(1);
+
+    // Охраняет все три хранилища и связи эпиков с подзадачами
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Просмотр меняет историю, хотя идёт под блокировкой чтения, — читатели упорядочиваются этим замком.
+    // Под блокировкой записи история меняется без него: читателей в это время нет
+    protected final Object historyLock = new Object();
+    // Интервалы времени задач и подзадач — для проверки пересечений за O(log n) и списка приоритетов
+    private final TaskIntervalTree timeIndex = new TaskIntervalTree();
+    // Сводки подзадач по id эпика — статус и время эпика пересчитываются за O(log k), а не обходом подзадач
+    private final IntObjectHashMap<EpicAggregate> epicAggregates = new IntObjectHashMap<>();
 
     // Конструктор с инициализацией historyManager
     public InMemoryTaskManager() {
         this.historyManager = new InMemoryHistoryManager();
     }
 
+    // Конструктор с заданной историей (например, ограниченной по ёмкости)
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
     // Генерируем уникальный ID
     private int generateId() {
-        return nextId++;
+        return nextId.getAndIncrement();
+    }
+
+    // Добавляет просмотренную задачу в историю. Конкурентную историю (например, разбитую по клиентам)
+    // меняем без общего замка истории — добавление и markViewed тогда не одно атомарное действие
+    private void addToHistory(Task task) {
+        if (historyManager.isConcurrent()) {
+            historyManager.add(task);
+            markViewed(task);
+            return;
+        }
+        synchronized (historyLock) {
+            historyManager.add(task);
+            markViewed(task);
+        }
+    }
+
+    // Читает историю под блокировкой чтения и, если история не конкурентная, под общим замком истории
+    private <T> T readHistory(Function<HistoryManager, T> read) {
+        lock.readLock().lock();
+        try {
+            if (historyManager.isConcurrent()) {
+                return read.apply(historyManager);
+            }
+            synchronized (historyLock) {
+                return read.apply(historyManager);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Отметки об изменениях хранилищ (в том числе каскадных — эпика при изменении его подзадач).
+    // Здесь ничего не делают; FileBackedTaskManager по ним узнаёт, что сохранять в следующий раз
+
+    // Задача добавлена или изменена
+    protected void markChanged(Task task) {
+    }
+
+    // Задача просмотрена (вызывается под замком истории; с конкурентной историей — без него,
+    // и тогда одновременные просмотры разных потоков могут прийти сюда не в том порядке, что в истории)
+    protected void markViewed(Task task) {
+    }
+
+    // Задача удалена
+    protected void markRemoved(int id) {
+    }
+
+    // Удалены все задачи типа type
+    protected void markCleared(TaskType type) {
     }
 
     // ____________Работа с Задачами (Task)_______________
@@ -34,58 +108,98 @@ public class InMemoryTaskManager implements TaskManager {
     // Добавляет новую задачу
     @Override
     public void addTask(Task task) {
-        if (isIntersectingWithOtherTasks(task)) {
-            throw new IllegalArgumentException("Задачи пересекаются по времени");
+        lock.writeLock().lock();
+        try {
+            if (isIntersectingWithOtherTasks(task)) {
+                throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+            task.setId(generateId());
+            registry.put(task);
+            timeIndex.put(task);
+            markChanged(task);
+        } finally {
+            lock.writeLock().unlock();
         }
-        task.setId(generateId());
-        tasks.put(task.getId(), task);
     }
 
     // Возвращает задачу по ID и добавляет её в историю
     @Override
     public Task getTaskById(int id) {
-        Task task = tasks.get(id);
-        if (task != null) {
-            historyManager.add(task);
+        lock.readLock().lock();
+        try {
+            Task task = tasks.get(id);
+            if (task != null) {
+                addToHistory(task);
+            }
+            return task;
+        } finally {
+            lock.readLock().unlock();
         }
-        return task;
     }
 
     // Возвращает список всех задач
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(tasks.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     // Обновляет задачу по ID
     @Override
     public void updateTask(Task task) {
-        if (isIntersectingWithOtherTasks(task)) {
-            throw new IllegalArgumentException("Задачи пересекаются по времени");
-        }
-        Task taskToUpdate = getTaskById(task.getId());
-        if (taskToUpdate == null) {
-            throw new IllegalArgumentException("Обновление существующего таска");
+        lock.writeLock().lock();
+        try {
+            if (isIntersectingWithOtherTasks(task)) {
+                throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+            Task taskToUpdate = getTaskById(task.getId());
+            if (taskToUpdate == null) {
+                throw new IllegalArgumentException("Обновление существующего таска");
+            }
+            registry.put(task);
+            timeIndex.put(task);
+            markChanged(task);
+        } finally {
+            lock.writeLock().unlock();
         }
-        tasks.put(task.getId(), task);
     }
 
     // Удаляет задачу по ID
     @Override
     public void removeTask(int id) {
-        tasks.remove(id);
-        // Удаляем задачу из истории после ее удаления
-        historyManager.remove(id);
+        lock.writeLock().lock();
+        try {
+            if (tasks.containsKey(id)) {
+                registry.remove(id);
+                timeIndex.remove(id);
+                markRemoved(id);
+            }
+            // Удаляем задачу из истории после ее удаления
+            historyManager.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     // Удаляет все задачи
     @Override
     public void removeAllTasks() {
-        for (Integer id : tasks.keySet()) {
-            // Удаляем каждую задачу из истории
-            historyManager.remove(id);
+        lock.writeLock().lock();
+        try {
+            tasks.forEachKey(id -> {
+                // Удаляем каждую задачу из истории
+                historyManager.remove(id);
+                timeIndex.remove(id);
+            });
+            registry.clear(TaskType.TASK);
+            markCleared(TaskType.TASK);
+        } finally {
+            lock.writeLock().unlock();
         }
-        tasks.clear();
     }
 
     // ____________Работа с Большими Задачами (Epic)______________
@@ -93,112 +207,138 @@ public class InMemoryTaskManager implements TaskManager {
     // Добавляет новый эпик
     @Override
     public void addEpic(Epic epic) {
-        epic.setId(generateId());
-        epics.put(epic.getId(), epic);
+        lock.writeLock().lock();
+        try {
+            epic.setId(generateId());
+            registry.put(epic);
+            markChanged(epic);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     // Возвращает эпик по ID и добавляет в историю
     @Override
     public Epic getEpicById(int id) {
-        Epic epic = epics.get(id);
-        if (epic != null) {
-            historyManager.add(epic);
+        lock.readLock().lock();
+        try {
+            Epic epic = epics.get(id);
+            if (epic == null) {
+                return null;
+            }
+            addToHistory(epic);
+            return new Epic(epic);
+        } finally {
+            lock.readLock().unlock();
         }
-        return epic;
     }
 
     // Возвращает список всех эпиков
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        lock.readLock().lock();
+        try {
+            List<Epic> result = new ArrayList<>(epics.size());
+            for (Epic epic : epics.values()) {
+                result.add(new Epic(epic));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     // Обновляет эпик: заменяет имя/описание и сохраняет подзадачи
     @Override
     public void updateEpic(Epic epic) {
-        Epic oldEpic = epics.get(epic.getId());
-        // Очищаем список подзадач, чтобы избежать дублирования ID
-        epic.clearSubtasks();
-        if (oldEpic != null) {
-            for (int subId : oldEpic.getSubtaskIds()) {
-                epic.addSubtaskId(subId);
+        lock.writeLock().lock();
+        try {
+            Epic oldEpic = epics.get(epic.getId());
+            // Как и для задач, обновлять можно только существующий эпик: иначе put заменил бы задачу
+            // или подзадачу с тем же ID, а её интервал остался бы в timeIndex
+            if (oldEpic == null) {
+                throw new IllegalArgumentException("Обновление существующего эпика");
             }
+            // Очищаем список подзадач, чтобы избежать дублирования ID
+            epic.clearSubtasks();
+            oldEpic.getSubtaskIds().forEachInt(epic::addSubtaskId);
+            registry.put(epic);
+            aggregateOf(epic).applyTo(epic); // статус, время и длительность берём из сводки подзадач
+            markChanged(epic);
+        } finally {
+            lock.writeLock().unlock();
         }
-        epics.put(epic.getId(), epic);
-        updateEpicStatus(epic);
-        updateEpicTimeAndDuration(epic); // обновляем время и длительность
     }
 
     // Удаляет эпик и связанные с ним подзадачи
     @Override
     public void removeEpic(int id) {
-        Epic epic = epics.remove(id);
-        if (epic != null) {
-            if (epic.getSubtaskIds() != null) {
-                for (int subId : epic.getSubtaskIds()) {
-                    subtasks.remove(subId);
+        lock.writeLock().lock();
+        try {
+            Epic epic = epics.get(id);
+            if (epic != null) {
+                registry.remove(id);
+                epic.getSubtaskIds().forEachInt(subId -> {
+                    registry.remove(subId);
+                    timeIndex.remove(subId);
+                    markRemoved(subId);
                     // Удаляем подзадачи эпика из истории
                     historyManager.remove(subId);
-                }
+                });
+                epicAggregates.remove(id);
+                markRemoved(id);
+                // Удаляем сам эпик из истории
+                historyManager.remove(id);
             }
-            // Удаляем сам эпик из истории
-            historyManager.remove(id);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     // Удаляет все эпики и подзадачи
     @Override
     public void removeAllEpics() {
-        for (Epic epic : epics.values()) {
-            // Удаляем эпик из истории
-            historyManager.remove(epic.getId());
-            for (int subId : epic.getSubtaskIds()) {
+        lock.writeLock().lock();
+        try {
+            for (Epic epic : epics.values()) {
+                // Удаляем эпик из истории
+                historyManager.remove(epic.getId());
                 // Удаляем все подзадачи эпика из истории
-                historyManager.remove(subId);
+                epic.getSubtaskIds().forEachInt(historyManager::remove);
             }
+            subtasks.forEachKey(timeIndex::remove);
+            registry.clear(TaskType.EPIC);
+            registry.clear(TaskType.SUBTASK);
+            epicAggregates.clear();
+            markCleared(TaskType.EPIC);
+            markCleared(TaskType.SUBTASK);
+        } finally {
+            lock.writeLock().unlock();
         }
-        epics.clear();
-        subtasks.clear();
     }
 
-    // Обновляет время начала, окончания и длительность эпика по подзадачам
-    protected void updateEpicTimeAndDuration(Epic epic) {
-        List<Integer> subtaskIds = epic.getSubtaskIds();
-        if (subtaskIds.isEmpty()) {
-            epic.setDuration(Duration.ZERO);  // если подзадач нет, сбрасываем значения
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            return;
+    // Сводка подзадач эпика (создаётся при первом обращении)
+    private EpicAggregate aggregateOf(Epic epic) {
+        EpicAggregate aggregate = epicAggregates.get(epic.getId());
+        if (aggregate == null) {
+            aggregate = new EpicAggregate();
+            epicAggregates.put(epic.getId(), aggregate);
         }
+        return aggregate;
+    }
 
-        Duration totalDuration = Duration.ZERO;  // сумма длительности подзадач
-        LocalDateTime earliestStart = null;      // минимальное время старта подзадач
-        LocalDateTime latestEnd = null;          // максимальное время окончания подзадач
-
-        for (int subId : subtaskIds) {
+    // Пересчитывает сводку эпика с нуля по его подзадачам — O(k).
+    // Нужен, когда хранилища заполнялись напрямую, а не через методы менеджера
+    protected void recalculateEpic(Epic epic) {
+        EpicAggregate aggregate = new EpicAggregate();
+        epic.getSubtaskIds().forEachInt(subId -> {
             Subtask subtask = subtasks.get(subId);
             if (subtask != null) {
-                totalDuration = totalDuration.plus(subtask.getDuration());  // суммируем длительность
-
-                LocalDateTime subStart = subtask.getStartTime();
-                if (subStart != null) {
-                    if (earliestStart == null || subStart.isBefore(earliestStart)) {
-                        earliestStart = subStart;  // обновляем минимальное время старта
-                    }
-                }
-
-                LocalDateTime subEnd = subtask.getEndTime();
-                if (subEnd != null) {
-                    if (latestEnd == null || subEnd.isAfter(latestEnd)) {
-                        latestEnd = subEnd;  // обновляем максимальное время окончания
-                    }
-                }
+                aggregate.put(subtask);
             }
-        }
-
-        epic.setDuration(totalDuration);  // записываем суммарную длительность
-        epic.setStartTime(earliestStart); // записываем минимальное время старта
-        epic.setEndTime(latestEnd);       // записываем максимальное время окончания
+        });
+        epicAggregates.put(epic.getId(), aggregate);
+        aggregate.applyTo(epic);
     }
 
     // ____________Работа с Подзадачами для эпиков (SubTask)______________
@@ -206,94 +346,144 @@ public class InMemoryTaskManager implements TaskManager {
     // Добавляет подзадачу и привязывает к эпику
     @Override
     public void addSubtask(Subtask subtask) {
-        if (isIntersectingWithOtherTasks(subtask)) {
-            throw new IllegalArgumentException("Задачи пересекаются по времени");
-        }
-        subtask.setId(generateId());
-        subtasks.put(subtask.getId(), subtask);
-        Epic epic = epics.get(subtask.getEpicId());
-        if (epic != null) {
-            epic.addSubtaskId(subtask.getId());
-            updateEpicStatus(epic);
-            updateEpicTimeAndDuration(epic); // обновляем время и длительность
+        lock.writeLock().lock();
+        try {
+            if (isIntersectingWithOtherTasks(subtask)) {
+                throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+            subtask.setId(generateId());
+            registry.put(subtask);
+            timeIndex.put(subtask);
+            markChanged(subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtaskId(subtask.getId());
+                EpicAggregate aggregate = aggregateOf(epic);
+                aggregate.put(subtask);
+                aggregate.applyTo(epic); // обновляем статус, время и длительность
+                markChanged(epic);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     // Возвращает подзадачу по ID и добавляет в историю
     @Override
     public Subtask getSubtaskById(int id) {
-        Subtask subtask = subtasks.get(id);
-        if (subtask != null) {
-            historyManager.add(subtask);
+        lock.readLock().lock();
+        try {
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                addToHistory(subtask);
+            }
+            return subtask;
+        } finally {
+            lock.readLock().unlock();
         }
-        return subtask;
     }
 
     // Возвращает список всех подзадач
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(subtasks.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     // Возвращает список подзадач конкретного эпика
     @Override
     public List<Subtask> getSubtasksByEpicId(int epicId) {
-        List<Subtask> result = new ArrayList<>();
-        Epic epic = epics.get(epicId);
-        if (epic != null) {
-            for (int subId : epic.getSubtaskIds()) {
-                result.add(subtasks.get(subId));
+        lock.readLock().lock();
+        try {
+            List<Subtask> result = new ArrayList<>();
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                epic.getSubtaskIds().forEachInt(subId -> result.add(subtasks.get(subId)));
             }
+            return result;
+        } finally {
+            lock.readLock().unlock();
         }
-        return result;
     }
 
     // Обновляет подзадачу и статус эпика
     @Override
     public void updateSubtask(Subtask subtask) {
-        if (isIntersectingWithOtherTasks(subtask)) {
-            throw new IllegalArgumentException("Задачи пересекаются по времени");
-        }
-        Subtask subtaskToUpdate = getSubtaskById(subtask.getId());
-        if (subtaskToUpdate == null) {
-            throw new IllegalArgumentException("Обновление существующего сабтаска");
-        }
-        subtasks.put(subtask.getId(), subtask);
-        Epic epic = epics.get(subtask.getEpicId());
-        if (epic != null) {
-            updateEpicStatus(epic);
-            updateEpicTimeAndDuration(epic); // обновляем время и длительность
+        lock.writeLock().lock();
+        try {
+            if (isIntersectingWithOtherTasks(subtask)) {
+                throw new IllegalArgumentException("Задачи пересекаются по времени");
+            }
+            Subtask subtaskToUpdate = getSubtaskById(subtask.getId());
+            if (subtaskToUpdate == null) {
+                throw new IllegalArgumentException("Обновление существующего сабтаска");
+            }
+            registry.put(subtask);
+            timeIndex.put(subtask);
+            markChanged(subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                EpicAggregate aggregate = aggregateOf(epic);
+                aggregate.replace(subtask);
+                aggregate.applyTo(epic); // обновляем статус, время и длительность
+                markChanged(epic);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     // Удаляет подзадачу и обновляет статус эпика
     @Override
     public void removeSubtask(int id) {
-        Subtask subtask = subtasks.remove(id);
-        if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.removeSubtaskId(id);
-                updateEpicStatus(epic);
-                updateEpicTimeAndDuration(epic); // обновляем время и длительность
+        lock.writeLock().lock();
+        try {
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                registry.remove(id);
+                timeIndex.remove(id);
+                markRemoved(id);
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) {
+                    epic.removeSubtaskId(id);
+                    EpicAggregate aggregate = aggregateOf(epic);
+                    aggregate.remove(id);
+                    aggregate.applyTo(epic); // обновляем статус, время и длительность
+                    markChanged(epic);
+                }
+                // Удаляем подзадачу из истории
+                historyManager.remove(id);
             }
-            // Удаляем подзадачу из истории
-            historyManager.remove(id);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     // Удаляет все подзадачи и очищает ссылки у эпиков
     @Override
     public void removeAllSubtasks() {
-        for (Integer id : subtasks.keySet()) {
-            // Удаляем каждую подзадачу из истории
-            historyManager.remove(id);
-        }
-        subtasks.clear();
-        for (Epic epic : epics.values()) {
-            epic.clearSubtasks();
-            updateEpicStatus(epic);
-            updateEpicTimeAndDuration(epic); // обновляем время и длительность
+        lock.writeLock().lock();
+        try {
+            subtasks.forEachKey(id -> {
+                // Удаляем каждую подзадачу из истории
+                historyManager.remove(id);
+                timeIndex.remove(id);
+            });
+            registry.clear(TaskType.SUBTASK);
+            // Одна отметка на всё удаление: списки подзадач и статусы эпиков восстанавливаются из неё же
+            markCleared(TaskType.SUBTASK);
+            epicAggregates.clear();
+            EpicAggregate empty = new EpicAggregate();
+            for (Epic epic : epics.values()) {
+                epic.clearSubtasks();
+                empty.applyTo(epic); // сбрасываем статус, время и длительность
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -302,117 +492,110 @@ public class InMemoryTaskManager implements TaskManager {
     // Возвращает список последних просмотренных задач
     @Override
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        return readHistory(history -> {
+            List<Task> result = new ArrayList<>(history.size());
+            history.forEach(task -> result.add(snapshotOf(task)));
+            return result;
+        });
     }
 
-    // Обновляет статус эпика на основе статусов подзадач
-    private void updateEpicStatus(Epic epic) {
-        List<Integer> subtaskIds = epic.getSubtaskIds();
-        if (subtaskIds.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-            return;
-        }
+    // visitor вызывается под замками менеджера: он не должен обращаться к менеджеру
+    // и не должен надолго блокироваться (например, на записи в сеть)
+    @Override
+    public void visitHistory(Consumer<? super Task> visitor) {
+        readHistory(history -> {
+            history.forEach(task -> visitor.accept(snapshotOf(task)));
+            return null;
+        });
+    }
 
-        boolean allNew = true;
-        boolean allDone = true;
+    @Override
+    public int visitRecentHistory(int cursor, int limit, Consumer<? super Task> visitor) {
+        return readHistory(history -> history.visitRecent(cursor, limit,
+                task -> visitor.accept(snapshotOf(task))));
+    }
 
-        for (int subId : subtaskIds) {
-            TaskStatus status = subtasks.get(subId).getStatus();
-            if (status != TaskStatus.NEW) {
-                allNew = false;
-            }
-            if (status != TaskStatus.DONE) {
-                allDone = false;
+    // Id самых просматриваемых задач берём из истории, задачи — из реестра (удалённые пропускаем)
+    @Override
+    public List<Task> getMostViewed(int k) {
+        return readHistory(history -> {
+            List<Task> result = new ArrayList<>();
+            for (int id : history.getMostViewed(k)) {
+                Task task = registry.get(id);
+                if (task != null) {
+                    result.add(snapshotOf(task));
+                }
             }
-        }
+            return result;
+        });
+    }
 
-        if (allNew) {
-            epic.setStatus(TaskStatus.NEW);
-        } else if (allDone) {
-            epic.setStatus(TaskStatus.DONE);
-        } else {
-            epic.setStatus(TaskStatus.IN_PROGRESS);
-        }
+    // То, что можно отдать наружу: копия для эпика, сама задача — для остальных (их не меняют на месте)
+    private static Task snapshotOf(Task task) {
+        return task instanceof Epic epic ? new Epic(epic) : task;
+    }
+
+    @Override
+    public HistoryManager.ClientScope forClient(String clientId) {
+        return historyManager.forClient(clientId);
     }
 
     // ____________Дополнительные методы______________
 
-    // Возвращает список задач и подзадач, у которых задано время старта, отсортированных по времени старта
+    // Возвращает список задач и подзадач, у которых задано время старта, отсортированных по времени старта.
+    // Список неизменяемый и поддерживается индексом времени — между изменениями он не пересобирается
     @Override
     public List<Task> getPrioritizedTasks() {
-        TreeSet<Task> prioritizedTasks = new TreeSet<>((t1, t2) -> {
-            LocalDateTime start1 = t1.getStartTime();
-            LocalDateTime start2 = t2.getStartTime();
-
-            // Если оба времени старта отсутствуют, сортируем по id
-            if (start1 == null && start2 == null) return Integer.compare(t1.getId(), t2.getId());
-            // Задачи без времени старта считаются "позже"
-            if (start1 == null) return 1;
-            if (start2 == null) return -1;
-
-            // Сравниваем по времени старта
-            int cmp = start1.compareTo(start2);
-            if (cmp != 0) return cmp;
-
-            // Если время старта одинаковое, сортируем по id
-            return Integer.compare(t1.getId(), t2.getId());
-        });
-
-        // Добавляем задачи с назначенным временем старта
-        for (Task task : tasks.values()) {
-            if (task.getStartTime() != null) {
-                prioritizedTasks.add(task);
-            }
-        }
-
-        // Добавляем подзадачи с назначенным временем старта
-        for (Subtask subtask : subtasks.values()) {
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.add(subtask);
-            }
-        }
-
-        // Возвращаем отсортированный список
-        return new ArrayList<>(prioritizedTasks);
-    }
-
-    // Проверяет, пересекаются ли два временных интервала
-    private boolean isTimeIntersect(LocalDateTime start1, LocalDateTime end1,
-                                    LocalDateTime start2, LocalDateTime end2) {
-        if (start1 == null || end1 == null || start2 == null || end2 == null) {
-            return false; // Если у какой-то задачи нет времени, пересечения нет
+        lock.readLock().lock();
+        try {
+            return timeIndex.inOrder();
+        } finally {
+            lock.readLock().unlock();
         }
-        return !end1.isBefore(start2) && !start1.isAfter(end2);
     }
 
-    // Проверяет, пересекается ли задача task с любой уже существующей задачей или подзадачей
+    // Проверяет, пересекается ли задача task с любой уже существующей задачей или подзадачей.
+    // Сама задача (при обновлении) не учитывается
     private boolean isIntersectingWithOtherTasks(Task task) {
         LocalDateTime startNew = task.getStartTime();
         LocalDateTime endNew = task.getEndTime();
         if (startNew == null || endNew == null) {
             return false; // Если время не задано, считаем что пересечений нет
         }
+        return timeIndex.overlaps(startNew, endNew, task.getId());
+    }
 
-        // Проверяем пересечения с обычными задачами
-        for (Task t : tasks.values()) {
-            if (t.getId() == task.getId()) continue; // Пропускаем саму себя при обновлении
-            LocalDateTime start = t.getStartTime();
-            LocalDateTime end = t.getEndTime();
-            if (isTimeIntersect(startNew, endNew, start, end)) {
-                return true;
-            }
+    // Заново строит индекс времени и сводки эпиков по хранилищам — для наследников, заполняющих их напрямую
+    protected void rebuildIndexes() {
+        for (Epic epic : epics.values()) {
+            recalculateEpic(epic);
+        }
+        timeIndex.clear();
+        for (Task task : tasks.values()) {
+            timeIndex.put(task);
         }
+        for (Subtask subtask : subtasks.values()) {
+            timeIndex.put(subtask);
+        }
+    }
 
-        // Проверяем пересечения с подзадачами
-        for (Subtask st : subtasks.values()) {
-            if (st.getId() == task.getId()) continue; // Пропускаем саму себя
-            LocalDateTime start = st.getStartTime();
-            LocalDateTime end = st.getEndTime();
-            if (isTimeIntersect(startNew, endNew, start, end)) {
-                return true;
-            }
+    // Число задач каждого типа и длина истории; значения читаются под теми же замками, что и обычные вызовы
+    @Override
+    public void registerMetrics(MetricsRegistry metrics) {
+        String help = "Число задач в менеджере по типам";
+        metrics.gauge("taskmanager_tasks", help, MetricsRegistry.labels("type", "task"), () -> size(tasks));
+        metrics.gauge("taskmanager_tasks", help, MetricsRegistry.labels("type", "epic"), () -> size(epics));
+        metrics.gauge("taskmanager_tasks", help, MetricsRegistry.labels("type", "subtask"), () -> size(subtasks));
+        metrics.gauge("taskmanager_history_length", "Число задач в истории просмотров", "",
+                () -> readHistory(HistoryManager::size));
+    }
+
+    private int size(TaskRegistry.View<?> view) {
+        lock.readLock().lock();
+        try {
+            return view.size();
+        } finally {
+            lock.readLock().unlock();
         }
-        return false;
     }
 }
-
@@ -0,0 +1,206 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import util.LatencyHistogram;
+import util.MetricsRegistry;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Обёртка над менеджером: замеряет время каждой операции и считает исключения по операциям.
+// Гистограммы берутся из реестра один раз при создании, так что на вызов приходится два System.nanoTime()
+// и несколько атомарных увеличений. Показатели самого менеджера (размеры, история, запись на диск)
+// обёртка не регистрирует: их один раз регистрирует владелец (HttpTaskServer) через registerMetrics,
+// который передаётся обёрнутому менеджеру
+public class InstrumentedTaskManager implements TaskManager {
+    private static final String LATENCY = "taskmanager_operation_seconds";
+    private static final String ERRORS = "taskmanager_operation_errors_total";
+
+    // Замеряемые операции; name — метка operation
+    private enum Operation {
+        ADD_TASK("addTask"), GET_TASK("getTaskById"), GET_ALL_TASKS("getAllTasks"), UPDATE_TASK("updateTask"),
+        REMOVE_TASK("removeTask"), REMOVE_ALL_TASKS("removeAllTasks"),
+        ADD_EPIC("addEpic"), GET_EPIC("getEpicById"), GET_ALL_EPICS("getAllEpics"), UPDATE_EPIC("updateEpic"),
+        REMOVE_EPIC("removeEpic"), REMOVE_ALL_EPICS("removeAllEpics"),
+        ADD_SUBTASK("addSubtask"), GET_SUBTASK("getSubtaskById"), GET_ALL_SUBTASKS("getAllSubtasks"),
+        GET_EPIC_SUBTASKS("getSubtasksByEpicId"), UPDATE_SUBTASK("updateSubtask"),
+        REMOVE_SUBTASK("removeSubtask"), REMOVE_ALL_SUBTASKS("removeAllSubtasks"),
+        GET_HISTORY("getHistory"), VISIT_HISTORY("visitHistory"), VISIT_RECENT_HISTORY("visitRecentHistory"),
+        GET_MOST_VIEWED("getMostViewed"), GET_PRIORITIZED("getPrioritizedTasks");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final TaskManager delegate;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram[] latency = new LatencyHistogram[Operation.values().length];
+
+    public InstrumentedTaskManager(TaskManager delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        for (Operation operation : Operation.values()) {
+            latency[operation.ordinal()] = metrics.histogram(LATENCY, "Время операций менеджера задач",
+                    MetricsRegistry.labels("operation", operation.label));
+        }
+    }
+
+    @Override
+    public void addTask(Task task) {
+        run(Operation.ADD_TASK, () -> delegate.addTask(task));
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return call(Operation.GET_TASK, () -> delegate.getTaskById(id));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return call(Operation.GET_ALL_TASKS, delegate::getAllTasks);
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        run(Operation.UPDATE_TASK, () -> delegate.updateTask(task));
+    }
+
+    @Override
+    public void removeTask(int id) {
+        run(Operation.REMOVE_TASK, () -> delegate.removeTask(id));
+    }
+
+    @Override
+    public void removeAllTasks() {
+        run(Operation.REMOVE_ALL_TASKS, delegate::removeAllTasks);
+    }
+
+    @Override
+    public void addEpic(Epic epic) {
+        run(Operation.ADD_EPIC, () -> delegate.addEpic(epic));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return call(Operation.GET_EPIC, () -> delegate.getEpicById(id));
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return call(Operation.GET_ALL_EPICS, delegate::getAllEpics);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        run(Operation.UPDATE_EPIC, () -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public void removeEpic(int id) {
+        run(Operation.REMOVE_EPIC, () -> delegate.removeEpic(id));
+    }
+
+    @Override
+    public void removeAllEpics() {
+        run(Operation.REMOVE_ALL_EPICS, delegate::removeAllEpics);
+    }
+
+    @Override
+    public void addSubtask(Subtask subtask) {
+        run(Operation.ADD_SUBTASK, () -> delegate.addSubtask(subtask));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return call(Operation.GET_SUBTASK, () -> delegate.getSubtaskById(id));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return call(Operation.GET_ALL_SUBTASKS, delegate::getAllSubtasks);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        return call(Operation.GET_EPIC_SUBTASKS, () -> delegate.getSubtasksByEpicId(epicId));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        run(Operation.UPDATE_SUBTASK, () -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public void removeSubtask(int id) {
+        run(Operation.REMOVE_SUBTASK, () -> delegate.removeSubtask(id));
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        run(Operation.REMOVE_ALL_SUBTASKS, delegate::removeAllSubtasks);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return call(Operation.GET_HISTORY, delegate::getHistory);
+    }
+
+    @Override
+    public void visitHistory(Consumer<? super Task> visitor) {
+        run(Operation.VISIT_HISTORY, () -> delegate.visitHistory(visitor));
+    }
+
+    @Override
+    public int visitRecentHistory(int cursor, int limit, Consumer<? super Task> visitor) {
+        return call(Operation.VISIT_RECENT_HISTORY, () -> delegate.visitRecentHistory(cursor, limit, visitor));
+    }
+
+    @Override
+    public List<Task> getMostViewed(int k) {
+        return call(Operation.GET_MOST_VIEWED, () -> delegate.getMostViewed(k));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return call(Operation.GET_PRIORITIZED, delegate::getPrioritizedTasks);
+    }
+
+    // Открытие области не замеряется: это не операция менеджера, а привязка потока к клиенту
+    @Override
+    public HistoryManager.ClientScope forClient(String clientId) {
+        return delegate.forClient(clientId);
+    }
+
+    @Override
+    public void registerMetrics(MetricsRegistry metrics) {
+        delegate.registerMetrics(metrics);
+    }
+
+    private void run(Operation operation, Runnable action) {
+        call(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Время считается и для вызовов, завершившихся исключением; исключение ещё и попадает в счётчик ошибок
+    private <T> T call(Operation operation, Supplier<T> action) {
+        long started = System.nanoTime();
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            metrics.counter(ERRORS, "Исключения в операциях менеджера задач",
+                    MetricsRegistry.labels("operation", operation.label, "exception", e.getClass().getSimpleName()))
+                    .increment();
+            throw e;
+        } finally {
+            latency[operation.ordinal()].recordValue(System.nanoTime() - started);
+        }
+    }
+}
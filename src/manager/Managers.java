@@ -10,4 +10,20 @@ public class Managers {
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    // История, которая держит не больше capacity задач и вытесняет ту, что дольше всех не смотрели
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    // История для многопоточного сервера: запись просмотра идёт без общего замка
+    public static HistoryManager getConcurrentHistory(int capacity) {
+        return new ConcurrentHistoryManager(capacity);
+    }
+
+    // История с отдельным списком на каждого клиента: не больше capacity задач в разделе
+    // и не больше maxPartitions клиентских разделов
+    public static HistoryManager getPartitionedHistory(int capacity, int maxPartitions) {
+        return new PartitionedHistoryManager(capacity, maxPartitions);
+    }
 }
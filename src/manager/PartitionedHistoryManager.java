@@ -0,0 +1,238 @@
+package manager;
+
+import model.Task;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// История, разбитая на разделы по клиентам: у каждого клиента свой ограниченный список просмотров
+// со своим замком, так что клиенты не мешают друг другу и не засоряют чужую историю.
+// Раздел ищется в ConcurrentHashMap без общего замка, запись и чтение идут под замком самого раздела.
+// Раздел выбирается по потоку: HTTP-фильтр открывает forClient(id) на время запроса.
+// Вызовы вне такой области попадают в общий раздел по умолчанию.
+// Область и закрепления относятся только к этому экземпляру истории — другие менеджеры их не видят.
+// Число разделов ограничено: при переполнении удаляется раздел, к которому дольше всех не обращались
+// среди небольшой выборки, — вытеснение приблизительное, зато не требует общего порядка обращений.
+// Общий раздел не удаляется никогда. Разделы клиентов с открытой областью закреплены и не удаляются,
+// пока область не закрыта, — иначе просмотры, добавленные в середине запроса, пропали бы вместе с разделом
+public class PartitionedHistoryManager implements HistoryManager {
+    // Сколько незакреплённых разделов просматривается, чтобы выбрать, какой вытеснить
+    private static final int EVICTION_SAMPLE = 8;
+
+    // Список просмотров одного клиента; все обращения к history — под замком самого раздела
+    private static final class Partition {
+        final InMemoryHistoryManager history;
+        // Когда к разделу обращались (System.nanoTime) — пишется без общего счётчика
+        volatile long lastUsed;
+        // Раздел вытеснен: потоки, успевшие его получить, должны взять раздел заново (под замком раздела)
+        boolean evicted;
+
+        Partition(int capacity) {
+            this.history = new InMemoryHistoryManager(capacity);
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    // Область, в которой текущий поток работает с разделом клиента
+    private final class Scope implements ClientScope {
+        private final String previous;
+        private final String clientId;
+
+        private Scope(String previous, String clientId) {
+            this.previous = previous;
+            this.clientId = clientId;
+        }
+
+        // Возвращает потоку прежний раздел и снимает закрепление раздела клиента
+        @Override
+        public void close() {
+            if (previous == null) {
+                currentClient.remove();
+            } else {
+                currentClient.set(previous);
+            }
+            if (clientId != null) {
+                openScopes.computeIfPresent(clientId, (id, open) -> open == 1 ? null : open - 1);
+            }
+        }
+    }
+
+    private final int partitionCapacity;
+    private final int maxPartitions;
+    private final Partition defaultPartition;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    // Вытесняет один поток за раз; остальные не ждут его и просто идут дальше
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Раздел текущего потока; null — общий раздел
+    private final ThreadLocal<String> currentClient = new ThreadLocal<>();
+    // Сколько областей открыто для каждого клиента во всех потоках; такие клиенты не вытесняются
+    private final Map<String, Integer> openScopes = new ConcurrentHashMap<>();
+
+    // partitionCapacity — сколько задач хранит история одного клиента,
+    // maxPartitions — сколько клиентских разделов держится одновременно
+    public PartitionedHistoryManager(int partitionCapacity, int maxPartitions) {
+        if (maxPartitions <= 0) {
+            throw new IllegalArgumentException("Число разделов истории должно быть положительным: " + maxPartitions);
+        }
+        this.partitionCapacity = partitionCapacity;
+        this.maxPartitions = maxPartitions;
+        this.defaultPartition = new Partition(partitionCapacity);
+    }
+
+    // Направляет вызовы этой истории из текущего потока в раздел клиента, пока область не закрыта.
+    // null или пустой id — общий раздел
+    @Override
+    public ClientScope forClient(String clientId) {
+        String previous = currentClient.get();
+        if (clientId == null || clientId.isEmpty()) {
+            currentClient.remove();
+            return new Scope(previous, null);
+        }
+        // Закрепляем раздел до того, как поток к нему обратится
+        openScopes.merge(clientId, 1, Integer::sum);
+        currentClient.set(clientId);
+        return new Scope(previous, clientId);
+    }
+
+    @Override
+    public void add(Task task) {
+        withCurrent(history -> {
+            history.add(task);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return withCurrent(InMemoryHistoryManager::getHistory);
+    }
+
+    // Удалённая задача убирается из истории всех клиентов
+    @Override
+    public void remove(int id) {
+        synchronized (defaultPartition) {
+            defaultPartition.history.remove(id);
+        }
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                partition.history.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Task> visitor) {
+        withCurrent(history -> {
+            history.forEach(visitor);
+            return null;
+        });
+    }
+
+    @Override
+    public int visitRecent(int cursor, int limit, Consumer<? super Task> visitor) {
+        return withCurrent(history -> history.visitRecent(cursor, limit, visitor));
+    }
+
+    // Самые просматриваемые задачи клиента текущего потока
+    @Override
+    public List<Integer> getMostViewed(int k) {
+        return withCurrent(history -> history.getMostViewed(k));
+    }
+
+    // Длина истории клиента текущего потока
+    @Override
+    public int size() {
+        return withCurrent(InMemoryHistoryManager::size);
+    }
+
+    // Разделы синхронизируются сами — общий замок истории менеджеру не нужен
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    // Сколько клиентских разделов сейчас в памяти (без общего)
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    // Выполняет action над разделом текущего потока под замком раздела.
+    // Если раздел успели вытеснить, берёт раздел заново — вызов не попадёт в удалённый раздел
+    private <T> T withCurrent(Function<InMemoryHistoryManager, T> action) {
+        while (true) {
+            Partition partition = current();
+            synchronized (partition) {
+                if (!partition.evicted) {
+                    return action.apply(partition.history);
+                }
+            }
+        }
+    }
+
+    // Раздел текущего потока; новый раздел создаётся при первом обращении клиента
+    private Partition current() {
+        String clientId = currentClient.get();
+        if (clientId == null) {
+            return defaultPartition;
+        }
+        Partition partition = partitions.get(clientId);
+        if (partition != null) {
+            partition.lastUsed = System.nanoTime();
+            return partition;
+        }
+        partition = partitions.computeIfAbsent(clientId, id -> new Partition(partitionCapacity));
+        if (partitions.size() > maxPartitions) {
+            evictExcess();
+        }
+        return partition;
+    }
+
+    // Удаляет разделы, пока их не станет maxPartitions: каждый раз — тот, к которому дольше всех
+    // не обращались среди первых EVICTION_SAMPLE незакреплённых. Если вытесняет другой поток,
+    // этот не ждёт; если закреплены все, предел временно превышается до следующего нового клиента
+    private void evictExcess() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (partitions.size() > maxPartitions) {
+                Map.Entry<String, Partition> eldest = null;
+                int sampled = 0;
+                Iterator<Map.Entry<String, Partition>> entries = partitions.entrySet().iterator();
+                while (sampled < EVICTION_SAMPLE && entries.hasNext()) {
+                    Map.Entry<String, Partition> entry = entries.next();
+                    if (openScopes.containsKey(entry.getKey())) {
+                        continue;
+                    }
+                    sampled++;
+                    if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null || !evict(eldest.getKey(), eldest.getValue())) {
+                    return;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Вытесняет раздел, если его не закрепили, пока шёл выбор. Проверка и отметка идут под замком
+    // раздела: поток, который уже работает с ним, держит этот замок и закреплён своей областью
+    private boolean evict(String clientId, Partition partition) {
+        synchronized (partition) {
+            if (openScopes.containsKey(clientId)) {
+                return false;
+            }
+            partition.evicted = true;
+        }
+        partitions.remove(clientId, partition);
+        return true;
+    }
+}
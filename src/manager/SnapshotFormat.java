@@ -0,0 +1,7 @@
+package manager;
+
+// Формат полного снимка FileBackedTaskManager
+public enum SnapshotFormat {
+    CSV,    // текстовый формат: строка на задачу, без времени, длительности и контрольных сумм (только без журнала)
+    BINARY  // формат по умолчанию: компактные записи BinaryTaskConverter со всеми полями и CRC32C каждой
+}
@@ -2,12 +2,15 @@ package manager;
 
 import model.*;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class TaskConverter {
     // Преобразует задачу в строку формата CSV
     public static String toString(Task task) {
         String base = String.join(",",
                 String.valueOf(task.getId()),
-                getType(task).name(),
+                task.getType().name(),
                 task.getName(),
                 task.getStatus().name(),
                 task.getDescription()
@@ -54,10 +57,82 @@ public class TaskConverter {
         }
     }
 
-    // Определяет тип задачи по объекту
-    private static TaskType getType(Task task) {
-        if (task instanceof Epic) return TaskType.EPIC;
-        if (task instanceof Subtask) return TaskType.SUBTASK;
-        return TaskType.TASK;
+    // Восстанавливает задачу из строки CSV, лежащей в буфере между позициями start и end.
+    // Поля разбираются прямо из байт (например, из буфера с прочитанным снимком) —
+    // без промежуточной строки на всю запись и без массива частей от split
+    public static Task fromBytes(ByteBuffer in, int start, int end) {
+        int idEnd = nextComma(in, start, end);
+        int typeEnd = nextComma(in, idEnd + 1, end);
+        int nameEnd = nextComma(in, typeEnd + 1, end);
+        int statusEnd = nextComma(in, nameEnd + 1, end);
+        int descriptionEnd = nextComma(in, statusEnd + 1, end);
+
+        int id = parseInt(in, start, idEnd);
+        TaskType type = parseEnum(in, idEnd + 1, typeEnd, TaskType.values());
+        String name = decode(in, typeEnd + 1, nameEnd);
+        TaskStatus status = parseEnum(in, nameEnd + 1, statusEnd, TaskStatus.values());
+        String description = decode(in, statusEnd + 1, descriptionEnd);
+
+        Task task = switch (type) {
+            case TASK -> new Task(name, description);
+            case EPIC -> new Epic(name, description);
+            case SUBTASK -> new Subtask(name, description,
+                    parseInt(in, descriptionEnd + 1, nextComma(in, descriptionEnd + 1, end)));
+        };
+        task.setId(id);
+        task.setStatus(status);
+        return task;
+    }
+
+    // Позиция следующей запятой или end, если запятых больше нет
+    private static int nextComma(ByteBuffer in, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (in.get(i) == ',') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    // Разбирает целое число из ASCII-цифр
+    static int parseInt(ByteBuffer in, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Пустое число в записи");
+        }
+        boolean negative = in.get(start) == '-';
+        int value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            int digit = in.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Неверное число в записи на позиции " + i);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Находит значение перечисления по имени, сравнивая байты без создания строки
+    private static <E extends Enum<E>> E parseEnum(ByteBuffer in, int start, int end, E[] values) {
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != end - start) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < name.length() && matches; i++) {
+                matches = in.get(start + i) == name.charAt(i);
+            }
+            if (matches) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное значение в записи на позиции " + start);
+    }
+
+    // Декодирует текстовое поле из UTF-8
+    private static String decode(ByteBuffer in, int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        in.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,232 @@
+package manager;
+
+import model.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Интервальное дерево задач по времени выполнения: AVL-дерево по ключу (время старта, id),
+// в каждом узле хранится максимальное время окончания в его поддереве.
+// Интервалы закрытые: задачи, у которых конец одной совпадает с началом другой, пересекаются.
+// Вставка, удаление и проверка пересечения — O(log n).
+// Интервал запоминается при вставке, поэтому изменение полей уже добавленной задачи дерево не портит.
+// Обход дерева по порядку даёт задачи, отсортированные по времени старта, — это список приоритетов
+public class TaskIntervalTree {
+
+    private static class Node {
+        final Task task;
+        final int id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        LocalDateTime maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(Task task, LocalDateTime start, LocalDateTime end) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    // По id находим узел, а по нему — ключ, под которым задача лежит в дереве
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    // Неизменяемый список задач по порядку; null — дерево менялось после последнего обхода.
+    // Читатели могут строить его одновременно — результат у всех одинаковый
+    private volatile List<Task> ordered = List.of();
+
+    // Добавляет задачу или заменяет её прежний интервал. Задачи без времени старта не хранятся
+    public void put(Task task) {
+        remove(task.getId());
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) {
+            return;
+        }
+        Node node = new Node(task, start, end);
+        root = insert(root, node);
+        nodes.put(node.id, node);
+        ordered = null;
+    }
+
+    // Удаляет интервал задачи по id
+    public void remove(int id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            root = delete(root, node.start, node.id);
+            ordered = null;
+        }
+    }
+
+    public void clear() {
+        root = null;
+        nodes.clear();
+        ordered = List.of();
+    }
+
+    // Задачи по возрастанию (время старта, id). Пока дерево не меняется, возвращается один и тот же
+    // неизменяемый список, после изменения он один раз строится обходом дерева — без сортировки
+    public List<Task> inOrder() {
+        List<Task> result = ordered;
+        if (result == null) {
+            List<Task> list = new ArrayList<>(nodes.size());
+            Deque<Node> path = new ArrayDeque<>();
+            Node node = root;
+            while (node != null || !path.isEmpty()) {
+                while (node != null) {
+                    path.push(node);
+                    node = node.left;
+                }
+                node = path.pop();
+                list.add(node.task);
+                node = node.right;
+            }
+            result = Collections.unmodifiableList(list);
+            ordered = result;
+        }
+        return result;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    // Есть ли интервал, пересекающийся с [start, end], кроме интервала задачи excludeId
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, int excludeId) {
+        return overlaps(root, start, end, excludeId);
+    }
+
+    private static boolean overlaps(Node node, LocalDateTime start, LocalDateTime end, int excludeId) {
+        // В поддереве всё закончилось раньше начала — пересечений нет
+        if (node == null || node.maxEnd.isBefore(start)) {
+            return false;
+        }
+        if (overlaps(node.left, start, end, excludeId)) {
+            return true;
+        }
+        // Узел и всё правее начинаются позже конца — дальше искать незачем
+        if (node.start.isAfter(end)) {
+            return false;
+        }
+        if (node.id != excludeId && !node.end.isBefore(start)) {
+            return true;
+        }
+        return overlaps(node.right, start, end, excludeId);
+    }
+
+    private static int compare(LocalDateTime start1, int id1, LocalDateTime start2, int id2) {
+        int cmp = start1.compareTo(start2);
+        return cmp != 0 ? cmp : Integer.compare(id1, id2);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node.start, node.id) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node.start, node.id);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Узел с двумя детьми заменяем минимальным узлом правого поддерева
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    // Восстанавливает баланс узла и пересчитывает высоту и максимальный конец
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+}
@@ -0,0 +1,445 @@
+package manager;
+
+import model.Task;
+import model.TaskType;
+import util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32C;
+
+// Журнал операций менеджера: каждое изменение дописывается в конец файла одной строкой,
+// поэтому запись стоит O(1) независимо от количества задач.
+// В режиме группового коммита записи копятся в очереди, а отдельный поток пишет их пачкой
+// и делает один fsync на всю пачку. Каждая строка начинается с контрольной суммы CRC32C.
+public class TaskJournal {
+    // Операции журнала
+    public static final String PUT = "PUT";
+    public static final String PUT_BINARY = "PUTB";
+    public static final String DELETE = "DEL";
+    public static final String CLEAR = "CLEAR";
+    public static final String VIEW = "VIEW";
+    public static final String NEXT_ID = "NEXT";
+    public static final String BASE = "BASE";
+
+    // Больше записей в одну пачку не берём, даже если время ожидания ещё не вышло
+    private static final int MAX_BATCH_SIZE = 4096;
+    // Длина контрольной суммы в начале строки (CRC32C в шестнадцатеричном виде)
+    private static final int CHECKSUM_LENGTH = 8;
+
+    // Запись, ожидающая попадания на диск
+    private record PendingRecord(String record, CompletableFuture<Void> durable) {
+    }
+
+    private final File file;
+    // Сколько коммит может ждать попутчиков; null — запись и fsync сразу в вызывающем потоке
+    private final Duration maxCommitDelay;
+    private FileChannel channel;
+
+    // Очередь группового коммита и состояние пишущего потока (под монитором журнала)
+    private final List<PendingRecord> queue = new ArrayList<>();
+    private Thread writerThread;
+    private boolean writing;
+    private boolean closed;
+    // Время fsync пачек записей (в наносекундах)
+    private final LatencyHistogram syncLatency = new LatencyHistogram();
+
+    public TaskJournal(File file) {
+        this(file, null);
+    }
+
+    public TaskJournal(File file, Duration maxCommitDelay) {
+        this.file = file;
+        this.maxCommitDelay = maxCommitDelay;
+    }
+
+    // Запись "задача добавлена или изменена" — двоичная запись задачи в Base64.
+    // В отличие от CSV (старые записи PUT) сохраняет время и длительность и не ломается на запятых
+    public static String put(Task task) {
+        return PUT_BINARY + "," + Base64.getEncoder().encodeToString(BinaryTaskConverter.toBytes(task));
+    }
+
+    // Запись "задача удалена по id"
+    public static String delete(int id) {
+        return DELETE + "," + id;
+    }
+
+    // Запись "удалены все задачи указанного типа"
+    public static String clear(TaskType type) {
+        return CLEAR + "," + type.name();
+    }
+
+    // Запись "задача просмотрена" — для восстановления истории просмотров
+    public static String view(int id) {
+        return VIEW + "," + id;
+    }
+
+    // Запись "следующий id" — чтобы после снимка не выдавать заново id удалённых задач
+    public static String nextId(int nextId) {
+        return NEXT_ID + "," + nextId;
+    }
+
+    // Первая запись дельта-сегмента: отпечаток снимка, поверх которого сегмент применяется
+    public static String base(String snapshotBase) {
+        return BASE + "," + snapshotBase;
+    }
+
+    // Дописывает запись в конец журнала. Возвращённый future завершается, когда запись на диске
+    public synchronized CompletableFuture<Void> append(String record) {
+        if (closed) {
+            throw new ManagerSaveException("Журнал закрыт", null);
+        }
+        if (maxCommitDelay == null) {
+            try {
+                write(List.of(record), true);
+                return CompletableFuture.completedFuture(null);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при записи в журнал", e);
+            }
+        }
+        return enqueue(record);
+    }
+
+    // Дописывает запись, не дожидаясь fsync: потерять последние просмотры при сбое допустимо,
+    // а платить за сброс на диск при каждом чтении — нет
+    public synchronized void appendLazily(String record) {
+        if (closed) {
+            throw new ManagerSaveException("Журнал закрыт", null);
+        }
+        if (maxCommitDelay == null) {
+            try {
+                write(List.of(record), false);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при записи в журнал", e);
+            }
+            return;
+        }
+        enqueue(record);
+    }
+
+    // Читает все записи журнала по порядку (для восстановления после перезапуска):
+    // сначала отложенный при контрольной точке сегмент, если он остался, затем текущий файл.
+    // Каждая запись проверяется по контрольной сумме; повреждённый хвост (например, запись,
+    // оборванная сбоем) отбрасывается и обрезается, чтобы новые записи шли сразу за последней целой
+    public synchronized List<String> readAll() {
+        try {
+            awaitIdle();
+            List<String> records = new ArrayList<>();
+            readSegment(rotatedFile(), records);
+            readSegment(file, records);
+            return records;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала", e);
+        }
+    }
+
+    // Читает целые записи одного файла журнала в records и обрезает файл после последней целой записи
+    private void readSegment(File segment, List<String> records) throws IOException {
+        if (!segment.exists()) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(segment.toPath());
+        int lineStart = 0;
+        while (lineStart < content.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < content.length && content[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            String record = unseal(new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+            if (record == null) {
+                System.out.println("Журнал " + segment.getName() + " повреждён начиная с позиции " + lineStart
+                        + ", хвост отброшен");
+                closeChannel();
+                try (FileChannel out = FileChannel.open(segment.toPath(), StandardOpenOption.WRITE)) {
+                    out.truncate(lineStart);
+                    out.force(false);
+                }
+                return;
+            }
+            if (!record.isBlank()) {
+                records.add(record);
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    // Снабжает запись контрольной суммой CRC32C: "<8 hex-цифр>:<запись>"
+    static String seal(String record) {
+        return checksum(record) + ":" + record;
+    }
+
+    // Проверяет контрольную сумму строки журнала и возвращает саму запись; null — строка повреждена.
+    // Строки без контрольной суммы (журналы старого формата) принимаются как есть
+    static String unseal(String line) {
+        if (line.length() < CHECKSUM_LENGTH + 1 || line.charAt(CHECKSUM_LENGTH) != ':') {
+            return isLegacyRecord(line) ? line : null;
+        }
+        String record = line.substring(CHECKSUM_LENGTH + 1);
+        return line.startsWith(checksum(record)) ? record : null;
+    }
+
+    // Старые записи начинаются с названия операции и запятой
+    private static boolean isLegacyRecord(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return line.isBlank();
+        }
+        return switch (line.substring(0, comma)) {
+            case PUT, PUT_BINARY, DELETE, CLEAR, VIEW, NEXT_ID -> true;
+            default -> false;
+        };
+    }
+
+    private static String checksum(String record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        String hex = Long.toHexString(crc.getValue());
+        return "0".repeat(CHECKSUM_LENGTH - hex.length()) + hex;
+    }
+
+    // Очищает журнал — вызывается после того, как полный снимок записан в основной файл
+    public synchronized void truncate() {
+        try {
+            awaitIdle();
+            Files.deleteIfExists(rotatedFile().toPath());
+            if (channel == null && !file.exists()) {
+                return; // журнал ещё ни разу не писался
+            }
+            openChannel().truncate(0);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при очистке журнала", e);
+        }
+    }
+
+    // Откладывает текущие записи в отдельный сегмент (<журнал>.old), а новые пишет в чистый файл.
+    // Вызывается контрольной точкой: отложенный сегмент войдёт в снимок и потом будет удалён
+    public synchronized void rotate() {
+        try {
+            awaitIdle();
+            closeChannel();
+            if (!file.exists()) {
+                return;
+            }
+            File rotated = rotatedFile();
+            if (rotated.exists()) {
+                // Прошлая контрольная точка не завершилась — дописываем, чтобы не потерять её записи
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(rotated.toPath(), StandardOpenOption.WRITE,
+                             StandardOpenOption.APPEND)) {
+                    long position = 0;
+                    while (position < in.size()) {
+                        position += in.transferTo(position, in.size() - position, out);
+                    }
+                    out.force(false);
+                }
+                Files.delete(file.toPath());
+            } else {
+                Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при переключении журнала", e);
+        }
+    }
+
+    // Удаляет отложенный сегмент — его записи уже есть в снимке
+    public synchronized void dropRotated() {
+        try {
+            Files.deleteIfExists(rotatedFile().toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при удалении старого сегмента журнала", e);
+        }
+    }
+
+    // Файл отложенного сегмента
+    private File rotatedFile() {
+        return new File(file.getPath() + ".old");
+    }
+
+    // Дожидается записи всех накопленных записей, останавливает пишущий поток и закрывает файл
+    public void close() {
+        Thread writer;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            writer = writerThread;
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            try {
+                closeChannel();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при закрытии журнала", e);
+            }
+        }
+    }
+
+    public LatencyHistogram getSyncLatency() {
+        return syncLatency;
+    }
+
+    // Ставит запись в очередь группового коммита и при необходимости запускает пишущий поток
+    private CompletableFuture<Void> enqueue(String record) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        queue.add(new PendingRecord(record, durable));
+        if (writerThread == null) {
+            writerThread = new Thread(this::writeLoop, "task-journal-writer-" + file.getName());
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        notifyAll();
+        return durable;
+    }
+
+    // Цикл пишущего потока: собирает пачку, пишет её одним вызовом и делает один fsync.
+    // Прерывание потока считается сигналом остановки: журнал закрывается для новых записей,
+    // уже принятые дописываются, и поток завершается
+    private void writeLoop() {
+        boolean interrupted = false;
+        while (true) {
+            List<PendingRecord> batch;
+            synchronized (this) {
+                try {
+                    while (queue.isEmpty() && !closed) {
+                        wait();
+                    }
+                    if (queue.isEmpty()) {
+                        if (interrupted) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return; // журнал закрыт и всё записано
+                    }
+                    // Даём попутчикам время присоединиться к коммиту, но не дольше maxCommitDelay
+                    long deadline = System.nanoTime() + maxCommitDelay.toNanos();
+                    while (queue.size() < MAX_BATCH_SIZE && !closed) {
+                        long left = deadline - System.nanoTime();
+                        if (left <= 0) {
+                            break;
+                        }
+                        wait(left / 1_000_000, (int) (left % 1_000_000));
+                    }
+                } catch (InterruptedException e) {
+                    // Флаг прерывания уже сброшен, поэтому оставшиеся записи ещё можно записать в канал;
+                    // вернём его перед выходом из потока
+                    interrupted = true;
+                    closed = true;
+                    notifyAll();
+                    if (queue.isEmpty()) {
+                        continue;
+                    }
+                }
+                int size = Math.min(queue.size(), MAX_BATCH_SIZE);
+                batch = new ArrayList<>(queue.subList(0, size));
+                queue.subList(0, size).clear();
+                writing = true;
+            }
+
+            List<String> records = new ArrayList<>(batch.size());
+            for (PendingRecord pending : batch) {
+                records.add(pending.record());
+            }
+            IOException failure = null;
+            boolean interruptedInWrite = false;
+            try {
+                write(records, true);
+            } catch (ClosedByInterruptException e) {
+                // Прерывание посреди записи закрыло канал: эта пачка не записана,
+                // остальные дописываются в заново открытый канал
+                failure = e;
+                interruptedInWrite = Thread.interrupted();
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            synchronized (this) {
+                if (interruptedInWrite) {
+                    interrupted = true;
+                    closed = true;
+                    try {
+                        closeChannel();
+                    } catch (IOException ignored) {
+                        // канал уже закрыт прерыванием
+                    }
+                }
+                writing = false;
+                notifyAll();
+            }
+            for (PendingRecord pending : batch) {
+                if (failure == null) {
+                    pending.durable().complete(null);
+                } else {
+                    pending.durable().completeExceptionally(
+                            new ManagerSaveException("Ошибка при записи в журнал", failure));
+                }
+            }
+        }
+    }
+
+    // Пишет записи одним буфером; force — принудительно сбросить их на диск
+    private void write(List<String> records, boolean force) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String record : records) {
+            text.append(seal(record)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        FileChannel out = openChannel();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        if (force) {
+            long started = System.nanoTime();
+            out.force(false);
+            syncLatency.recordValue(System.nanoTime() - started);
+        }
+    }
+
+    // Открывает файл журнала на дозапись (один раз)
+    private synchronized FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    // Закрывает открытый файл журнала
+    private synchronized void closeChannel() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } finally {
+            channel = null;
+        }
+    }
+
+    // Ждёт, пока пишущий поток допишет очередь (вызывается под монитором журнала)
+    private void awaitIdle() {
+        while (!queue.isEmpty() || writing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание записи журнала прервано", e);
+            }
+        }
+    }
+}
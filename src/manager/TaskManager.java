@@ -1,8 +1,14 @@
 package manager;
 
 import model.*;
+import util.MetricsRegistry;
+
 import java.util.List;
+import java.util.function.Consumer;
 
+// Возвращённые задачи вызывающий читает уже без блокировок менеджера (HTTP-сервер сериализует их
+// из нескольких потоков), поэтому реализация не должна менять отданные объекты после возврата:
+// InMemoryTaskManager заменяет задачи и подзадачи новыми объектами, а эпики отдаёт копиями
 public interface TaskManager {
 
     //Методы для Task
@@ -49,6 +55,26 @@ public interface TaskManager {
     //История просмотров
     List<Task> getHistory();
 
+    // Обход истории от первого просмотра к последнему без копирования в список
+    void visitHistory(Consumer<? super Task> visitor);
+
+    // Страница истории от последнего просмотра к первому (см. HistoryManager.visitRecent),
+    // возвращает курсор следующей страницы
+    int visitRecentHistory(int cursor, int limit, Consumer<? super Task> visitor);
+
+    // Не больше k самых просматриваемых задач, самая частая — первой
+    List<Task> getMostViewed(int k);
+
     //Дополнительные методы
     List<Task> getPrioritizedTasks();
-}
\ No newline at end of file
+
+    // Относит просмотры и чтения истории из текущего потока к клиенту clientId, пока область не закрыта
+    // (HTTP-фильтр открывает её на время запроса). Без раздельной истории область ничего не меняет
+    default HistoryManager.ClientScope forClient(String clientId) {
+        return HistoryManager.ClientScope.NONE;
+    }
+
+    // Регистрирует показатели менеджера для /metrics (размеры хранилищ, длина истории и т.п.)
+    default void registerMetrics(MetricsRegistry metrics) {
+    }
+}
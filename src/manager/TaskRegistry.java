@@ -0,0 +1,136 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import util.IntObjectHashMap;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.IntConsumer;
+
+// Единый реестр задач, эпиков и подзадач по id. Id выдаются из одной последовательности, поэтому
+// сущность любого типа находится одним обращением к общей таблице, а тип берётся из неё самой.
+// Для списков по типу реестр ведёт отдельные таблицы и отдаёт их наружу только на чтение (View).
+// Менять содержимое можно только через put/remove/clear — так общая таблица и таблицы по типам
+// не расходятся
+public class TaskRegistry {
+
+    // Таблица одного типа, доступная только на чтение
+    public static class View<T extends Task> {
+        private final IntObjectHashMap<T> map;
+
+        private View(IntObjectHashMap<T> map) {
+            this.map = map;
+        }
+
+        public T get(int id) {
+            return map.get(id);
+        }
+
+        public boolean containsKey(int id) {
+            return map.containsKey(id);
+        }
+
+        public int size() {
+            return map.size();
+        }
+
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        public Collection<T> values() {
+            return Collections.unmodifiableCollection(map.values());
+        }
+
+        public void forEachKey(IntConsumer action) {
+            map.forEachKey(action);
+        }
+    }
+
+    private final IntObjectHashMap<Task> all = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Task> tasks = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Epic> epics = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Subtask> subtasks = new IntObjectHashMap<>();
+    private final View<Task> taskView = new View<>(tasks);
+    private final View<Epic> epicView = new View<>(epics);
+    private final View<Subtask> subtaskView = new View<>(subtasks);
+
+    // Сущность любого типа по id или null
+    public Task get(int id) {
+        return all.get(id);
+    }
+
+    // Тип сущности по id или null, если такого id нет
+    public TaskType typeOf(int id) {
+        Task task = all.get(id);
+        return task == null ? null : task.getType();
+    }
+
+    public boolean contains(int id) {
+        return all.containsKey(id);
+    }
+
+    // Кладёт сущность под её id и возвращает прежнюю (или null). Если под этим id лежала
+    // сущность другого типа, она убирается из своей таблицы
+    public Task put(Task task) {
+        int id = task.getId();
+        Task previous = all.put(id, task);
+        if (previous != null && previous.getType() != task.getType()) {
+            removeTyped(previous);
+        }
+        switch (task) {
+            case Epic epic -> epics.put(id, epic);
+            case Subtask subtask -> subtasks.put(id, subtask);
+            default -> tasks.put(id, task);
+        }
+        return previous;
+    }
+
+    // Удаляет сущность по id и возвращает её (или null)
+    public Task remove(int id) {
+        Task removed = all.remove(id);
+        if (removed != null) {
+            removeTyped(removed);
+        }
+        return removed;
+    }
+
+    // Удаляет все сущности одного типа
+    public void clear(TaskType type) {
+        IntObjectHashMap<? extends Task> typed = typed(type);
+        typed.forEachKey(all::remove);
+        typed.clear();
+    }
+
+    // Сколько всего сущностей
+    public int size() {
+        return all.size();
+    }
+
+    public View<Task> tasks() {
+        return taskView;
+    }
+
+    public View<Epic> epics() {
+        return epicView;
+    }
+
+    public View<Subtask> subtasks() {
+        return subtaskView;
+    }
+
+    private void removeTyped(Task task) {
+        typed(task.getType()).remove(task.getId());
+    }
+
+    private IntObjectHashMap<? extends Task> typed(TaskType type) {
+        return switch (type) {
+            case TASK -> tasks;
+            case EPIC -> epics;
+            case SUBTASK -> subtasks;
+        };
+    }
+}
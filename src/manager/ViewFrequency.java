@@ -0,0 +1,110 @@
+package manager;
+
+import util.FrequencySketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Частота просмотров задач: затухающие счётчики в count-min sketch и небольшой набор кандидатов
+// в самые просматриваемые. Учёт просмотра — O(1) и без выделения памяти: счётчики sketch плюс
+// один проход по массиву кандидатов фиксированного размера.
+// Затухание: после sampleSize просмотров все счётчики и оценки кандидатов делятся пополам,
+// поэтому недавние просмотры весят больше давних
+public class ViewFrequency {
+    // Сколько задач держим в кандидатах — больше этого getTop не вернёт
+    public static final int TOP_CAPACITY = 64;
+    private static final int DEFAULT_WIDTH = 1024;
+    // Затухание раз в SAMPLE_FACTOR * width просмотров
+    private static final int SAMPLE_FACTOR = 10;
+
+    private final FrequencySketch sketch;
+    private final int sampleSize;
+    private int viewsSinceDecay;
+    // Кандидаты: id и оценка на момент последнего просмотра (с учётом затуханий)
+    private final int[] candidateIds = new int[TOP_CAPACITY];
+    private final int[] candidateCounts = new int[TOP_CAPACITY];
+    private int candidates;
+
+    public ViewFrequency() {
+        this(DEFAULT_WIDTH);
+    }
+
+    // width — ширина строки sketch; память — 4 * width счётчиков
+    public ViewFrequency(int width) {
+        this.sketch = new FrequencySketch(width);
+        this.sampleSize = SAMPLE_FACTOR * sketch.width();
+    }
+
+    // Учитывает просмотр задачи
+    public void record(int id) {
+        int estimate = sketch.increment(id);
+        int rarest = 0;
+        boolean known = false;
+        for (int i = 0; i < candidates; i++) {
+            if (candidateIds[i] == id) {
+                candidateCounts[i] = estimate;
+                known = true;
+                break;
+            }
+            if (candidateCounts[i] < candidateCounts[rarest]) {
+                rarest = i;
+            }
+        }
+        if (!known) {
+            if (candidates < TOP_CAPACITY) {
+                candidateIds[candidates] = id;
+                candidateCounts[candidates] = estimate;
+                candidates++;
+            } else if (candidateCounts[rarest] < estimate) {
+                // Вытесняем самого редкого кандидата
+                candidateIds[rarest] = id;
+                candidateCounts[rarest] = estimate;
+            }
+        }
+        if (++viewsSinceDecay >= sampleSize) {
+            decay();
+        }
+    }
+
+    // Оценка числа недавних просмотров задачи
+    public int estimate(int id) {
+        return sketch.estimate(id);
+    }
+
+    // Задача удалена — из кандидатов её убираем (в sketch счётчик затухнет сам)
+    public void remove(int id) {
+        for (int i = 0; i < candidates; i++) {
+            if (candidateIds[i] == id) {
+                candidates--;
+                candidateIds[i] = candidateIds[candidates];
+                candidateCounts[i] = candidateCounts[candidates];
+                return;
+            }
+        }
+    }
+
+    // Id не больше k самых просматриваемых задач, самая просматриваемая — первой
+    public List<Integer> getTop(int k) {
+        long[] packed = new long[candidates];
+        for (int i = 0; i < candidates; i++) {
+            // Оценка в старших битах, id — в младших: сортировка по long упорядочивает по оценке
+            packed[i] = ((long) candidateCounts[i] << 32) | (candidateIds[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(packed);
+        int size = Math.min(Math.max(k, 0), candidates);
+        List<Integer> top = new ArrayList<>(size);
+        for (int i = candidates - 1; i >= candidates - size; i--) {
+            top.add((int) packed[i]);
+        }
+        return top;
+    }
+
+    private void decay() {
+        sketch.halve();
+        for (int i = 0; i < candidates; i++) {
+            candidateCounts[i] >>>= 1;
+        }
+        viewsSinceDecay = 0;
+    }
+}
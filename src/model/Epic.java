@@ -1,13 +1,13 @@
 package model;
 
+import util.IntOrderedSet;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Epic extends Task {
-    // Список ID подзадач, связанных с эпиком
-    private ArrayList<Integer> subtaskIds;
+    // ID подзадач, связанных с эпиком, в порядке добавления (без упаковки, удаление за O(1))
+    private IntOrderedSet subtaskIds;
 
     // Время окончания эпика (максимальное время окончания среди подзадач)
     private LocalDateTime endTime;
@@ -15,29 +15,48 @@ public class Epic extends Task {
     // Конструктор - инициализируем имя, описание, подзадачи, а также duration и startTime по умолчанию
     public Epic(String name, String description) {
         super(name, description);
-        this.subtaskIds = new ArrayList<>();
+        this.subtaskIds = new IntOrderedSet();
         this.duration = Duration.ZERO; // по умолчанию длительность 0 минут
         this.startTime = null;          // время начала пока не задано
         this.endTime = null;            // время окончания пока не задано
     }
 
+    // Копия эпика со своим списком подзадач: менеджер отдаёт наружу копии, потому что сам эпик
+    // (подзадачи, статус, время) меняется на месте при изменении его подзадач
+    public Epic(Epic other) {
+        super(other.name, other.description);
+        this.id = other.id;
+        this.status = other.status;
+        this.duration = other.duration;
+        this.startTime = other.startTime;
+        this.endTime = other.endTime;
+        IntOrderedSet ids = other.getSubtaskIds();
+        this.subtaskIds = new IntOrderedSet(ids.size());
+        ids.forEachInt(this.subtaskIds::addInt);
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.EPIC;
+    }
+
     // Возвращает список ID подзадач эпика
-    public List<Integer> getSubtaskIds() {
+    public IntOrderedSet getSubtaskIds() {
+        if (subtaskIds == null) {
+            this.subtaskIds = new IntOrderedSet(); // эпик, прочитанный из JSON без поля subtaskIds
+        }
         return subtaskIds;
     }
 
     // Добавляет ID подзадачи в список
     public void addSubtaskId(int id) {
-        if (subtaskIds == null) {
-            this.subtaskIds = new ArrayList<>();
-        }
-        subtaskIds.add(id);
+        getSubtaskIds().addInt(id);
     }
 
     // Удаляет ID подзадачи из списка
     public void removeSubtaskId(int id) {
         if (subtaskIds != null) {
-            subtaskIds.remove((Integer) id);
+            subtaskIds.removeInt(id);
         }
     }
 
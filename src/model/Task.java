@@ -42,6 +42,11 @@ public class Task {
         return description;
     }
 
+    // Тип сущности (переопределяется в Epic и Subtask)
+    public TaskType getType() {
+        return TaskType.TASK;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,73 @@
+package util;
+
+// Count-min sketch для int-ключей: приблизительные счётчики в таблице фиксированного размера.
+// Ключ попадает в одну ячейку каждой из DEPTH строк; оценка — минимум по этим ячейкам,
+// поэтому она может быть завышена из-за коллизий, но никогда не занижена.
+// Увеличиваются только ячейки, равные минимуму (conservative update), — это уменьшает завышение.
+// Память не зависит от числа ключей: DEPTH * width счётчиков
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+
+    private final int[] table;
+    private final int mask;
+
+    // width — число счётчиков в строке, округляется вверх до степени двойки
+    public FrequencySketch(int width) {
+        int rowWidth = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.table = new int[DEPTH * rowWidth];
+        this.mask = rowWidth - 1;
+    }
+
+    // Увеличивает счётчик ключа и возвращает новую оценку
+    public int increment(int key) {
+        int h = spread(key);
+        int step = (h >>> 16) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table[index(row, h, step)]);
+        }
+        if (min == Integer.MAX_VALUE) {
+            return min;
+        }
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(row, h, step);
+            if (table[index] == min) {
+                table[index] = min + 1;
+            }
+        }
+        return min + 1;
+    }
+
+    // Оценка числа увеличений ключа
+    public int estimate(int key) {
+        int h = spread(key);
+        int step = (h >>> 16) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table[index(row, h, step)]);
+        }
+        return min;
+    }
+
+    // Делит все счётчики пополам — старые события постепенно теряют вес
+    public void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+    }
+
+    // Число счётчиков в строке
+    public int width() {
+        return mask + 1;
+    }
+
+    // Ячейка строки row: двойное хеширование h + row * step внутри своей строки
+    private int index(int row, int h, int step) {
+        return row * (mask + 1) + ((h + row * step) & mask);
+    }
+
+    private static int spread(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,231 @@
+package util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+// Отображение int -> объект с открытой адресацией: ключи лежат в int[], значения — в Object[]
+// в тех же ячейках. Нет упаковки ключей и отдельного объекта на каждую запись, как в HashMap.
+// Коллизии разрешаются линейным пробированием, удаление — сдвигом назад, без "надгробий".
+// null в качестве значения не допускается: пустая ячейка — та, где значение null.
+// Порядок обхода не определён
+public class IntObjectHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    // Таблица расширяется вдвое, когда заполнена больше чем на 3/4
+    private static final int LOAD_NUMERATOR = 3;
+    private static final int LOAD_DENOMINATOR = 4;
+
+    private int[] keys;
+    private Object[] vals;
+    private int size;
+    private int threshold;
+    private int modCount;
+
+    public IntObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntObjectHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // Значение по ключу или null
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) vals[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    // Кладёт значение и возвращает прежнее (или null)
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (vals[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) vals[slot];
+                vals[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        vals[slot] = value;
+        size++;
+        modCount++;
+        if (size > threshold) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    // Удаляет запись и возвращает её значение (или null)
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) vals[slot];
+        deleteSlot(slot);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(vals, null);
+        size = 0;
+        modCount++;
+    }
+
+    // Обходит ключи без упаковки
+    public void forEachKey(IntConsumer action) {
+        int expectedModCount = modCount;
+        for (int slot = 0; slot < vals.length; slot++) {
+            if (vals[slot] != null) {
+                action.accept(keys[slot]);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    // Значения в порядке ячеек таблицы. Представление живое, но только для чтения
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private final int expectedModCount = modCount;
+        private int slot = nextSlot(0);
+
+        @Override
+        public boolean hasNext() {
+            return slot < vals.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (slot >= vals.length) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) vals[slot];
+            slot = nextSlot(slot + 1);
+            return value;
+        }
+    }
+
+    private int nextSlot(int slot) {
+        while (slot < vals.length && vals[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    // Ячейка с ключом или -1
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; vals[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Освобождает ячейку, сдвигая назад следующие записи цепочки, чтобы поиск не обрывался на дыре
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (vals[next] != null) {
+            int home = hash(keys[next]) & mask;
+            // Запись можно перенести в дыру, если её "родная" ячейка не лежит между дырой и ней
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                vals[hole] = vals[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        vals[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldVals = vals;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldVals.length; i++) {
+            if (oldVals[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (vals[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                vals[slot] = oldVals[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        vals = new Object[capacity];
+        threshold = (int) ((long) capacity * LOAD_NUMERATOR / LOAD_DENOMINATOR);
+    }
+
+    // Наименьшая степень двойки, при которой expectedSize записей не превышают порог заполнения
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.max(expectedSize, 1) * LOAD_DENOMINATOR / LOAD_NUMERATOR + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Перемешивание битов: последовательные id иначе легли бы одной сплошной цепочкой,
+    // и поиск отсутствующего ключа или удаление проходили бы её целиком
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
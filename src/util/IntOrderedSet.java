@@ -0,0 +1,352 @@
+package util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+
+// Множество int-значений, помнящее порядок добавления, без упаковки в Integer.
+// Значения лежат в массиве по порядку, а хеш-таблица с открытой адресацией хранит их позиции —
+// поэтому addInt, containsInt и removeInt работают за O(1).
+// Удалённое значение оставляет дыру в массиве; дыры убираются разом, когда их становится больше половины.
+// Чтение ничего не меняет (дыры пропускаются), поэтому читать множество можно из нескольких потоков
+// одновременно, если в это время его никто не меняет; убирает дыры только изменяющий вызов.
+// Снаружи это List<Integer>: Gson пишет и читает его как обычный JSON-массив
+public class IntOrderedSet extends AbstractList<Integer> {
+    private static final int MIN_CAPACITY = 4;
+    // Пустая ячейка хеш-таблицы
+    private static final int EMPTY = -1;
+
+    // Значения в порядке добавления (с дырами)
+    private int[] values;
+    private boolean[] removed;
+    // Сколько ячеек values занято (вместе с дырами) и сколько из них дыр
+    private int end;
+    private int holes;
+    // Хеш-таблица: позиция значения в values или EMPTY; размер — степень двойки
+    private int[] table;
+
+    public IntOrderedSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntOrderedSet(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        values = new int[capacity];
+        removed = new boolean[capacity];
+        table = newTable(capacity);
+    }
+
+    // Добавляет значение в конец; false — оно уже есть
+    public boolean addInt(int value) {
+        if (find(value) >= 0) {
+            return false;
+        }
+        if (end == values.length) {
+            if (holes * 2 >= end) {
+                compact();
+            } else {
+                values = Arrays.copyOf(values, end * 2);
+                removed = Arrays.copyOf(removed, end * 2);
+            }
+        }
+        if ((end + 1) * 2 > table.length) {
+            table = newTable(end + 1);
+            rehash();
+        }
+        values[end] = value;
+        insert(end);
+        end++;
+        modCount++;
+        return true;
+    }
+
+    public boolean containsInt(int value) {
+        return find(value) >= 0;
+    }
+
+    // Удаляет значение; false — его не было
+    public boolean removeInt(int value) {
+        int slot = find(value);
+        if (slot < 0) {
+            return false;
+        }
+        removed[table[slot]] = true;
+        holes++;
+        deleteSlot(slot);
+        modCount++;
+        if (holes > MIN_CAPACITY && holes * 2 > end) {
+            compact();
+        }
+        return true;
+    }
+
+    // Обходит значения по порядку без упаковки
+    public void forEachInt(IntConsumer action) {
+        for (int i = 0; i < end; i++) {
+            if (!removed[i]) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    // Итератор по значениям без упаковки
+    public PrimitiveIterator.OfInt intIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int position = skipHoles(0);
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (position >= end) {
+                    throw new NoSuchElementException();
+                }
+                int value = values[position];
+                position = skipHoles(position + 1);
+                return value;
+            }
+        };
+    }
+
+    // Позиция в values значения с логическим индексом index
+    private int positionOf(int index) {
+        if (holes == 0) {
+            return index;
+        }
+        int position = skipHoles(0);
+        for (int i = 0; i < index; i++) {
+            position = skipHoles(position + 1);
+        }
+        return position;
+    }
+
+    private int skipHoles(int position) {
+        while (position < end && removed[position]) {
+            position++;
+        }
+        return position;
+    }
+
+    public int[] toIntArray() {
+        int[] result = new int[size()];
+        int i = 0;
+        for (int position = 0; position < end; position++) {
+            if (!removed[position]) {
+                result[i++] = values[position];
+            }
+        }
+        return result;
+    }
+
+    // Без дыр — O(1), с дырами — проход до нужного значения (дыр не больше половины массива)
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size());
+        }
+        return values[positionOf(index)];
+    }
+
+    // Итератор пропускает дыры и не обращается к get, так что обход (в том числе Gson) остаётся O(n)
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            // Следующая позиция в values и логический индекс следующего значения
+            private int position = skipHoles(0);
+            private int index;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public Integer next() {
+                checkForComodification();
+                if (position >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = position;
+                position = skipHoles(position + 1);
+                index++;
+                return values[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                removeInt(values[last]);
+                last = -1;
+                index--;
+                // Удаление могло убрать дыры и сдвинуть значения — позицию ищем заново по индексу
+                position = index < size() ? positionOf(index) : end;
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Integer> spliterator() {
+        return Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public int size() {
+        return end - holes;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return addInt(value);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer value && containsInt(value);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Integer value)) {
+            return -1;
+        }
+        int slot = find(value);
+        if (slot < 0) {
+            return -1;
+        }
+        // Индекс — позиция в массиве минус дыры перед ней
+        int position = table[slot];
+        int index = position;
+        for (int i = 0; holes > 0 && i < position; i++) {
+            if (removed[i]) {
+                index--;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o); // значения не повторяются
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer value && removeInt(value);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int value = get(index);
+        removeInt(value);
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        Arrays.fill(removed, 0, end, false);
+        end = 0;
+        holes = 0;
+        modCount++;
+    }
+
+    // Ячейка хеш-таблицы со значением или -1
+    private int find(int value) {
+        int mask = table.length - 1;
+        for (int slot = hash(value) & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (values[table[slot]] == value) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int position) {
+        int mask = table.length - 1;
+        int slot = hash(values[position]) & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position;
+    }
+
+    // Удаление из таблицы с линейным пробированием: сдвигаем назад следующие записи цепочки,
+    // чтобы поиск не обрывался на освободившейся ячейке
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = hash(values[table[next]]) & mask;
+            // Запись можно перенести в дыру, если её "родная" ячейка не лежит между дырой и ней
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = EMPTY;
+    }
+
+    // Убирает дыры из массива значений и перестраивает позиции в таблице
+    private void compact() {
+        if (holes == 0) {
+            return;
+        }
+        int write = 0;
+        for (int read = 0; read < end; read++) {
+            if (!removed[read]) {
+                values[write++] = values[read];
+            }
+        }
+        Arrays.fill(removed, 0, end, false);
+        end = write;
+        holes = 0;
+        rehash();
+    }
+
+    private void rehash() {
+        Arrays.fill(table, EMPTY);
+        for (int position = 0; position < end; position++) {
+            if (!removed[position]) {
+                insert(position);
+            }
+        }
+    }
+
+    // Таблица заполнена не больше чем наполовину
+    private static int[] newTable(int size) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, size) * 2 - 1) << 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    // Перемешивание битов, чтобы последовательные id не шли в соседние ячейки одной цепочкой
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,159 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Гистограмма задержек в духе HdrHistogram: логарифмически-линейные корзины с относительной
+// погрешностью меньше 1% на всём диапазоне long. Значения до 256 хранятся точно, дальше каждая
+// степень двойки делится на 128 равных корзин. Память фиксирована (~60 КБ) и не зависит от числа замеров.
+// Запись — одно атомарное увеличение счётчика корзины, поэтому писать можно из нескольких потоков;
+// чтение во время записи даёт приблизительный, но согласованный по корзинам снимок
+public class LatencyHistogram {
+    // Значения меньше LINEAR_LIMIT хранятся точно
+    private static final int LINEAR_LIMIT = 256;
+    private static final int SUB_BUCKETS = 128;
+    private static final int SUB_BUCKET_BITS = 7;
+    // Показатель степени двойки самой большой корзины: (63 - 1) - SUB_BUCKET_BITS + 1
+    private static final int MAX_EXPONENT = 63 - SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_LIMIT + MAX_EXPONENT * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Записывает одно значение (отрицательные считаются нулём)
+    public void recordValue(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        totalCount.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    // Добавляет к этой гистограмме все замеры другой
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    // Сумма всех значений (для экспорта метрик)
+    public long getSum() {
+        return sum.get();
+    }
+
+    // Значение, не меньше которого percentile процентов замеров (верхняя граница корзины, но не больше max)
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Сколько замеров не больше value
+    public long getCountAtOrBelow(long value) {
+        if (value < 0) {
+            return 0;
+        }
+        int last = indexOf(value);
+        long count = 0;
+        for (int i = 0; i <= last; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    // Печатает распределение по перцентилям в формате HdrHistogram (outputPercentileDistribution):
+    // значение, перцентиль, число замеров не больше значения и 1/(1-перцентиль).
+    // scale — делитель значений (например, 1_000_000.0, чтобы из наносекунд получить миллисекунды)
+    public void outputPercentileDistribution(PrintStream out, int ticksPerHalfDistance, double scale) {
+        out.println(String.format(Locale.ROOT, "%12s %14s %10s %14s%n", "Value", "Percentile", "TotalCount",
+                "1/(1-Percentile)"));
+        long total = totalCount.get();
+        if (total > 0) {
+            double percentile = 0;
+            while (percentile < 100) {
+                long value = getValueAtPercentile(percentile);
+                printLine(out, value, percentile, scale);
+                if (value >= max.get()) {
+                    break;
+                }
+                // Как в HdrHistogram: чем ближе к 100%, тем мельче шаг
+                long halvings = (long) (Math.log(100 / (100 - percentile)) / Math.log(2)) + 1;
+                percentile += 100 / (ticksPerHalfDistance * Math.pow(2, halvings));
+            }
+            printLine(out, max.get(), 100, scale);
+        }
+        out.println(String.format(Locale.ROOT, "#[Mean    = %12.3f, Max            = %12.3f]",
+                getMean() / scale, max.get() / scale));
+        out.println(String.format(Locale.ROOT, "#[Total count    = %12d, Buckets        = %12d]",
+                total, BUCKETS));
+    }
+
+    private void printLine(PrintStream out, long value, double percentile, double scale) {
+        String inverse = percentile >= 100 ? "" : String.format(Locale.ROOT, "%14.2f", 1 / (1 - percentile / 100));
+        out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d %s", value / scale, percentile / 100,
+                getCountAtOrBelow(value), inverse));
+    }
+
+    // Корзина значения: до LINEAR_LIMIT — само значение, дальше — степень двойки и одна из 128 долей
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> exponent) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - 1) * SUB_BUCKETS + sub;
+    }
+
+    // Наибольшее значение, попадающее в корзину
+    private static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        long upper = ((sub + 1) << exponent) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,140 @@
+package util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Реестр показателей для /metrics: счётчики, гистограммы задержек и показания (gauge).
+// Показатели группируются в семейства по имени; внутри семейства различаются метками,
+// заранее собранными в строку через labels(...). Получение показателя — поиск в ConcurrentHashMap,
+// поэтому на горячем пути его лучше взять один раз и сохранить.
+// Выгрузка — текстовый формат Prometheus; гистограммы выгружаются как summary с квантилями,
+// посчитанными за всё время работы, и значениями в секундах
+public class MetricsRegistry {
+    // Квантили, которые выгружаются для каждой гистограммы
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+    }
+
+    // Семейство: тип, описание и показатели по строке меток
+    private record Family(Type type, String help, Map<String, Object> metrics) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    // Счётчик, который только растёт (число запросов, ошибок)
+    public LongAdder counter(String name, String help, String labels) {
+        return (LongAdder) metric(name, help, Type.COUNTER, labels, LongAdder::new);
+    }
+
+    // Гистограмма задержек в наносекундах
+    public LatencyHistogram histogram(String name, String help, String labels) {
+        return (LatencyHistogram) metric(name, help, Type.SUMMARY, labels, LatencyHistogram::new);
+    }
+
+    // Регистрирует уже существующую гистограмму (например, которую ведёт сам менеджер)
+    public void histogram(String name, String help, String labels, LatencyHistogram histogram) {
+        family(name, help, Type.SUMMARY).metrics().put(labels, histogram);
+    }
+
+    // Показание, которое считывается в момент выгрузки (размер таблицы, длина истории)
+    public void gauge(String name, String help, String labels, LongSupplier value) {
+        family(name, help, Type.GAUGE).metrics().put(labels, value);
+    }
+
+    // Собирает метки из пар имя, значение: labels("method", "GET") -> method="GET"
+    public static String labels(String... namesAndValues) {
+        if (namesAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами имя, значение");
+        }
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(namesAndValues[i]).append("=\"");
+            String value = namesAndValues[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> labels.append("\\\\");
+                    case '"' -> labels.append("\\\"");
+                    case '\n' -> labels.append("\\n");
+                    default -> labels.append(c);
+                }
+            }
+            labels.append('"');
+        }
+        return labels.toString();
+    }
+
+    // Все показатели в текстовом формате Prometheus, семейства и метки по алфавиту
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type().name).append('\n');
+            for (Map.Entry<String, Object> metric : new TreeMap<>(family.metrics()).entrySet()) {
+                String labels = metric.getKey();
+                switch (family.type()) {
+                    case COUNTER -> sample(out, name, labels, ((LongAdder) metric.getValue()).sum());
+                    case GAUGE -> sample(out, name, labels, ((LongSupplier) metric.getValue()).getAsLong());
+                    case SUMMARY -> summary(out, name, labels, (LatencyHistogram) metric.getValue());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private Object metric(String name, String help, Type type, String labels, Supplier<Object> factory) {
+        return family(name, help, type).metrics().computeIfAbsent(labels, ignored -> factory.get());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, ignored -> new Family(type, help, new ConcurrentHashMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Показатель " + name + " уже зарегистрирован как " + family.type().name);
+        }
+        return family;
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND).append('\n');
+        }
+        out.append(name).append("_sum");
+        appendLabels(out, labels);
+        out.append(' ').append(histogram.getSum() / NANOS_PER_SECOND).append('\n');
+        sample(out, name + "_count", labels, histogram.getTotalCount());
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        appendLabels(out, labels);
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void appendLabels(StringBuilder out, String labels) {
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+    }
+}
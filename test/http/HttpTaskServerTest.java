@@ -0,0 +1,268 @@
+package http;
+
+import com.google.gson.JsonParser;
+import manager.InMemoryTaskManager;
+import manager.InstrumentedTaskManager;
+import manager.Managers;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import util.MetricsRegistry;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerTest {
+
+    // Проверяем, что в каждом режиме параллельные запросы обрабатываются без потерь и повторных id
+    @ParameterizedTest
+    @EnumSource(ExecutorMode.class)
+    void concurrentRequestsAreHandledInEveryMode(ExecutorMode mode) throws Exception {
+        TaskManager taskManager = Managers.getDefault();
+        HttpTaskServer server = new HttpTaskServer(taskManager, 8080, 64, mode, 4);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String json = "{\"name\":\"Task " + i + "\",\"description\":\"Desc\",\"status\":\"NEW\"}";
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/tasks"))
+                        .POST(HttpRequest.BodyPublishers.ofString(json))
+                        .build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(201, response.get().statusCode());
+            }
+        } finally {
+            server.stop();
+        }
+
+        List<Task> tasks = taskManager.getAllTasks();
+        assertEquals(32, tasks.size());
+        assertEquals(32, tasks.stream().map(Task::getId).distinct().count());
+    }
+
+    // Проверяем, что сервер по умолчанию отдаёт эпики без ошибок, пока их подзадачи меняются в другом потоке
+    @Test
+    void epicsAreServedWhileSubtasksChange() throws Exception {
+        TaskManager taskManager = Managers.getDefault();
+        Epic epic = new Epic("Epic", "Desc");
+        taskManager.addEpic(epic);
+        for (int i = 0; i < 50; i++) {
+            taskManager.addSubtask(new Subtask("Subtask", "Desc", epic.getId()));
+        }
+        HttpTaskServer server = new HttpTaskServer(taskManager);
+        server.start();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                Subtask subtask = new Subtask("Subtask", "Desc", epic.getId());
+                taskManager.addSubtask(subtask);
+                taskManager.removeSubtask(subtask.getId());
+            }
+        });
+        writer.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String path = i % 2 == 0 ? "/epics" : "/epics/" + epic.getId();
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:" + server.getPort() + path))
+                        .GET()
+                        .build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.get().statusCode());
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+            server.stop();
+        }
+    }
+
+    // Проверяем, что показатели менеджера под обёрткой с замерами регистрируются ровно один раз
+    @Test
+    void managerMetricsAreRegisteredOnce() throws Exception {
+        List<String> gauges = new ArrayList<>();
+        MetricsRegistry metrics = new MetricsRegistry() {
+            @Override
+            public void gauge(String name, String help, String labels, LongSupplier value) {
+                gauges.add(name + "{" + labels + "}");
+                super.gauge(name, help, labels, value);
+            }
+        };
+        TaskManager taskManager = new InstrumentedTaskManager(Managers.getDefault(), metrics);
+        HttpTaskServer server = new HttpTaskServer(taskManager, 0, 0, ExecutorMode.VIRTUAL_THREADS, 1, metrics);
+        server.stop();
+
+        assertFalse(gauges.isEmpty());
+        assertEquals(gauges.size(), gauges.stream().distinct().count());
+    }
+
+    // Проверяем, что с портом 0 сервер занимает свободный порт и сообщает его
+    @Test
+    void ephemeralPortIsReported() throws Exception {
+        HttpTaskServer server = new HttpTaskServer(Managers.getDefault(), 0, 0, ExecutorMode.VIRTUAL_THREADS);
+        server.start();
+        try {
+            assertNotEquals(0, server.getPort());
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.getPort() + "/tasks"))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = HttpClient.newHttpClient()
+                    .send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Проверяем, что /metrics отдаёт коды ответов обработчиков и размеры менеджера
+    @Test
+    void metricsAreServedInPrometheusFormat() throws Exception {
+        TaskManager taskManager = Managers.getDefault();
+        taskManager.addTask(new Task("Task 1", "Desc"));
+        HttpTaskServer server = new HttpTaskServer(taskManager, 0, 0, ExecutorMode.VIRTUAL_THREADS);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort();
+            for (String path : List.of("/tasks/1", "/tasks/99")) {
+                client.send(HttpRequest.newBuilder().uri(URI.create(base + path)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding());
+            }
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder().uri(URI.create(base + "/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            String body = response.body();
+            assertTrue(body.contains("http_requests_total{handler=\"/tasks\",method=\"GET\",status=\"200\"} 1\n"));
+            assertTrue(body.contains("http_requests_total{handler=\"/tasks\",method=\"GET\",status=\"404\"} 1\n"));
+            assertTrue(body.contains("http_request_duration_seconds_count{handler=\"/tasks\",method=\"GET\"} 2\n"));
+            assertTrue(body.contains("taskmanager_tasks{type=\"task\"} 1\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Проверяем постраничную выдачу истории: свежие просмотры первыми, курсор в заголовке
+    @Test
+    void historyIsServedInPagesFromTheMostRecentView() throws Exception {
+        TaskManager taskManager = Managers.getDefault();
+        for (int i = 1; i <= 5; i++) {
+            taskManager.addTask(new Task("Task " + i, "Desc"));
+            taskManager.getTaskById(i);
+        }
+        HttpTaskServer server = new HttpTaskServer(taskManager);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> first = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/history?limit=3")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, first.statusCode());
+            assertEquals(List.of(5, 4, 3), ids(first.body()));
+            String cursor = first.headers().firstValue("X-Next-Cursor").orElseThrow();
+
+            HttpResponse<String> second = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/history?limit=3&cursor=" + cursor)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(List.of(2, 1), ids(second.body()));
+            assertTrue(second.headers().firstValue("X-Next-Cursor").isEmpty());
+
+            HttpResponse<String> full = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/history")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(List.of(1, 2, 3, 4, 5), ids(full.body()));
+            // JSON пишется прямо в поток ответа, без длины заранее
+            assertEquals("chunked", full.headers().firstValue("Transfer-Encoding").orElse(null));
+
+            HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/history?limit=abc")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, invalid.statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Проверяем, что с разбитой по клиентам историей каждый клиент видит только свои просмотры
+    @Test
+    void historyIsPartitionedByClientHeader() throws Exception {
+        TaskManager taskManager = new InMemoryTaskManager(Managers.getPartitionedHistory(10, 8));
+        taskManager.addTask(new Task("Task 1", "Desc"));
+        taskManager.addTask(new Task("Task 2", "Desc"));
+        HttpTaskServer server = new HttpTaskServer(taskManager);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            for (String[] view : new String[][]{{"alice", "1"}, {"bob", "2"}}) {
+                client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/tasks/" + view[1]))
+                        .header(ClientHistoryFilter.CLIENT_HEADER, view[0]).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+            }
+
+            HttpResponse<String> alice = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/history"))
+                    .header(ClientHistoryFilter.CLIENT_HEADER, "alice").GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(List.of(1), ids(alice.body()));
+            assertTrue(taskManager.getHistory().isEmpty()); // общий раздел не засорён
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Проверяем, что /history/top отдаёт самые просматриваемые задачи по убыванию числа просмотров
+    @Test
+    void topViewedTasksAreServed() throws Exception {
+        TaskManager taskManager = Managers.getDefault();
+        for (int i = 1; i <= 3; i++) {
+            taskManager.addTask(new Task("Task " + i, "Desc"));
+            for (int view = 0; view < i; view++) {
+                taskManager.getTaskById(i);
+            }
+        }
+        HttpTaskServer server = new HttpTaskServer(taskManager);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> top = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/history/top?k=2")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, top.statusCode());
+            assertEquals(List.of(3, 2), ids(top.body()));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static List<Integer> ids(String json) {
+        List<Integer> ids = new ArrayList<>();
+        JsonParser.parseString(json).getAsJsonArray()
+                .forEach(element -> ids.add(element.getAsJsonObject().get("id").getAsInt()));
+        return ids;
+    }
+}
@@ -0,0 +1,64 @@
+package manager;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryTaskConverterTest {
+
+    // Проверяем, что подзадача сохраняет все поля, включая запятые в тексте, секунды и время до 1970 года
+    @Test
+    void subtaskRoundTripsEveryField() {
+        Subtask subtask = new Subtask("Купить, упаковать", "Описание, с запятыми\nи переносом", 42);
+        subtask.setId(100_000);
+        subtask.setStatus(TaskStatus.IN_PROGRESS);
+        subtask.setStartTime(LocalDateTime.of(1969, 7, 20, 20, 17, 40));
+        subtask.setDuration(Duration.ofMinutes(90).plusSeconds(15));
+
+        Task restored = BinaryTaskConverter.fromBytes(BinaryTaskConverter.toBytes(subtask));
+
+        Subtask copy = assertInstanceOf(Subtask.class, restored);
+        assertEquals(subtask.getId(), copy.getId());
+        assertEquals(subtask.getName(), copy.getName());
+        assertEquals(subtask.getDescription(), copy.getDescription());
+        assertEquals(subtask.getStatus(), copy.getStatus());
+        assertEquals(subtask.getEpicId(), copy.getEpicId());
+        assertEquals(subtask.getStartTime(), copy.getStartTime());
+        assertEquals(subtask.getDuration(), copy.getDuration());
+    }
+
+    // Проверяем, что несколько записей подряд читаются по префиксу длины, а пустые поля остаются пустыми
+    @Test
+    void lengthPrefixedRecordsAreReadSequentially() throws IOException {
+        Task task = new Task(null, null);
+        task.setId(1);
+        task.setStatus(null);
+        task.setDuration(null);
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTaskConverter.writeTask(out, task);
+        BinaryTaskConverter.writeTask(out, epic);
+        ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+
+        Task first = BinaryTaskConverter.readTask(in);
+        assertNull(first.getName());
+        assertNull(first.getDescription());
+        assertNull(first.getStatus());
+        assertNull(first.getDuration());
+        assertNull(first.getStartTime());
+
+        Task second = BinaryTaskConverter.readTask(in);
+        assertInstanceOf(Epic.class, second);
+        assertEquals("Эпик", second.getName());
+        assertFalse(in.hasRemaining());
+    }
+}
@@ -0,0 +1,89 @@
+package manager;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+
+    private static Task task(int id) {
+        Task task = new Task("Задача " + id, "Описание");
+        task.setId(id);
+        return task;
+    }
+
+    // Проверяем, что в одном потоке история ведёт себя так же, как обычная
+    @Test
+    void singleThreadedBehaviourMatchesInMemoryHistory() {
+        Random random = new Random(5);
+        HistoryManager concurrent = Managers.getConcurrentHistory(20);
+        HistoryManager plain = Managers.getDefaultHistory(20);
+
+        for (int step = 0; step < 5_000; step++) {
+            int id = random.nextInt(40) + 1;
+            if (random.nextInt(5) == 0) {
+                concurrent.remove(id);
+                plain.remove(id);
+            } else {
+                concurrent.add(task(id));
+                plain.add(task(id));
+            }
+            if (step % 250 == 0) {
+                assertEquals(plain.getHistory(), concurrent.getHistory());
+            }
+        }
+        assertEquals(plain.getHistory(), concurrent.getHistory());
+        assertEquals(plain.getRecent(5), concurrent.getRecent(5));
+    }
+
+    // Проверяем, что одновременные просмотры из многих потоков не теряются, а порядок внутри потока сохраняется
+    @Test
+    void concurrentViewsAreNotLost() throws Exception {
+        int threads = 8;
+        int viewsPerThread = 2_000;
+        HistoryManager history = Managers.getConcurrentHistory(InMemoryHistoryManager.UNBOUNDED);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * viewsPerThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 1; i <= viewsPerThread; i++) {
+                        history.add(task(base + i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Task> result = history.getHistory();
+        assertEquals(threads * viewsPerThread, result.size());
+        Set<Integer> ids = new HashSet<>();
+        int[] lastPerThread = new int[threads];
+        for (Task task : result) {
+            assertTrue(ids.add(task.getId()));
+            int thread = (task.getId() - 1) / viewsPerThread;
+            assertTrue(task.getId() > lastPerThread[thread], "Просмотры одного потока идут по порядку");
+            lastPerThread[thread] = task.getId();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpicAggregateTest {
+
+    // Проверяем, что сводка после случайных добавлений, изменений и удалений совпадает с полным пересчётом
+    @Test
+    void aggregateMatchesFullRecalculation() {
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        EpicAggregate aggregate = new EpicAggregate();
+        Map<Integer, Subtask> subtasks = new HashMap<>();
+
+        for (int step = 0; step < 2_000; step++) {
+            int id = random.nextInt(50) + 1;
+            if (random.nextInt(3) == 0) {
+                aggregate.remove(id);
+                subtasks.remove(id);
+            } else {
+                Subtask subtask = subtasks.getOrDefault(id, new Subtask("Подзадача", "Описание", 0));
+                subtask.setId(id);
+                subtask.setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+                // Меняем объект на месте, как это делают вызывающие при обновлении
+                subtask.setStartTime(random.nextBoolean() ? null : base.plusMinutes(random.nextInt(10_000)));
+                subtask.setDuration(Duration.ofMinutes(random.nextInt(90)));
+                aggregate.put(subtask);
+                subtasks.put(id, subtask);
+            }
+
+            Epic actual = new Epic("Эпик", "Описание");
+            aggregate.applyTo(actual);
+            Epic expected = recalculate(subtasks);
+            assertEquals(expected.getStatus(), actual.getStatus(), "Шаг " + step);
+            assertEquals(expected.getDuration(), actual.getDuration(), "Шаг " + step);
+            assertEquals(expected.getStartTime(), actual.getStartTime(), "Шаг " + step);
+            assertEquals(expected.getEndTime(), actual.getEndTime(), "Шаг " + step);
+        }
+    }
+
+    // Полный пересчёт по всем подзадачам — так менеджер считал эпик раньше
+    private static Epic recalculate(Map<Integer, Subtask> subtasks) {
+        Epic epic = new Epic("Эпик", "Описание");
+        boolean allNew = subtasks.values().stream().allMatch(s -> s.getStatus() == TaskStatus.NEW);
+        boolean allDone = subtasks.values().stream().allMatch(s -> s.getStatus() == TaskStatus.DONE);
+        epic.setStatus(allNew ? TaskStatus.NEW : allDone ? TaskStatus.DONE : TaskStatus.IN_PROGRESS);
+        epic.setDuration(subtasks.values().stream().map(Subtask::getDuration).reduce(Duration.ZERO, Duration::plus));
+        epic.setStartTime(subtasks.values().stream().map(Subtask::getStartTime).filter(Objects::nonNull)
+                .min(LocalDateTime::compareTo).orElse(null));
+        epic.setEndTime(subtasks.values().stream().map(Subtask::getEndTime).filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo).orElse(null));
+        return epic;
+    }
+}
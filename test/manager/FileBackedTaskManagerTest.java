@@ -5,7 +5,17 @@ import org.junit.jupiter.api.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +29,7 @@ class FileBackedTaskManagerTest {
     void setUp() throws IOException {
         tempFile = File.createTempFile("tasks", ".csv");
         tempFile.deleteOnExit();
+        new File(tempFile.getPath() + ".history").deleteOnExit();
         manager = new FileBackedTaskManager(tempFile);
     }
 
@@ -89,6 +100,450 @@ class FileBackedTaskManagerTest {
         assertEquals(subtask.getId(), history.get(2).getId());
     }
 
+    // Проверяем, что в режиме журнала изменения не переписывают снимок, а попадают в журнал
+    @Test
+    void journalModeAppendsRecordsInsteadOfRewritingSnapshot() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
+
+        journaled.addTask(new Task("Task 1", "Description 1"));
+        journaled.addTask(new Task("Task 2", "Description 2"));
+
+        assertEquals(0, tempFile.length(), "Снимок не должен переписываться при каждом изменении");
+        assertEquals(2, Files.readAllLines(journalFile.toPath()).size());
+    }
+
+    // Проверяем, что снимок и журнал вместе восстанавливают состояние, включая удаления и каскады
+    @Test
+    void journalModeReplaysSnapshotAndLog() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
+
+        Task task = new Task("Task", "Desc");
+        journaled.addTask(task);
+        Epic epic = new Epic("Epic", "Desc");
+        journaled.addEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Desc", epic.getId());
+        journaled.addSubtask(subtask);
+        journaled.save(); // снимок, после него журнал пуст
+
+        Epic removedEpic = new Epic("Removed", "Desc");
+        journaled.addEpic(removedEpic);
+        journaled.addSubtask(new Subtask("Removed sub", "Desc", removedEpic.getId()));
+        journaled.removeEpic(removedEpic.getId());
+
+        subtask.setStatus(TaskStatus.DONE);
+        journaled.updateSubtask(subtask);
+        journaled.removeTask(task.getId());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+
+        assertTrue(loaded.getAllTasks().isEmpty());
+        assertEquals(1, loaded.getAllEpics().size());
+        assertEquals(1, loaded.getAllSubtasks().size());
+        assertEquals(TaskStatus.DONE, loaded.getAllEpics().get(0).getStatus());
+        assertEquals(List.of(subtask.getId()), loaded.getAllEpics().get(0).getSubtaskIds());
+
+        Task next = new Task("Next", "Desc");
+        loaded.addTask(next);
+        assertTrue(next.getId() > subtask.getId(), "Новые id не должны повторять уже выданные");
+    }
+
+    // Проверяем, что при групповом коммите изменения из разных потоков доходят до диска и восстанавливаются
+    @Test
+    void groupCommitPersistsConcurrentMutations() throws Exception {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager grouped = new FileBackedTaskManager(tempFile, journalFile,
+                Duration.ofMillis(5));
+
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 25; j++) {
+                    grouped.addTask(new Task("Task", "Desc"));
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        grouped.close();
+
+        assertEquals(100, Files.readAllLines(journalFile.toPath()).size());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        assertEquals(100, loaded.getAllTasks().size());
+    }
+
+    // Проверяем, что прерванный пишущий поток журнала дописывает принятые записи и завершается, а не крутится
+    @Test
+    void interruptedJournalWriterFlushesAndStops() throws Exception {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        TaskJournal journal = new TaskJournal(journalFile, Duration.ofSeconds(10));
+        Task task = new Task("Task", "Desc");
+        task.setId(1);
+
+        CompletableFuture<Void> durable = journal.append(TaskJournal.put(task));
+        Thread writer = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("task-journal-writer-" + journalFile.getName()))
+                .findFirst().orElseThrow();
+        writer.interrupt();
+
+        durable.get(2, TimeUnit.SECONDS);
+        writer.join(2000);
+        assertFalse(writer.isAlive());
+        assertThrows(ManagerSaveException.class, () -> journal.append(TaskJournal.delete(1)));
+        journal.close();
+        assertEquals(List.of(TaskJournal.put(task)), new TaskJournal(journalFile).readAll());
+    }
+
+    // Проверяем, что просмотр задачи не переписывает файл, но история всё равно восстанавливается
+    @Test
+    void viewingTaskDoesNotRewriteSnapshot() {
+        Task task = new Task("Task", "Desc");
+        manager.addTask(task);
+        long snapshotSize = tempFile.length();
+        long snapshotModified = tempFile.lastModified();
+
+        manager.getTaskById(task.getId());
+
+        assertEquals(snapshotSize, tempFile.length());
+        assertEquals(snapshotModified, tempFile.lastModified());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(task.getId()), loaded.getHistory().stream().map(Task::getId).toList());
+    }
+
+    // Проверяем слабую гарантию порядка при конкурентной истории: после перезапуска в истории те же задачи,
+    // а просмотры каждого потока идут в том же порядке (между потоками порядок может отличаться)
+    @Test
+    void concurrentHistoryKeepsPerThreadOrderAfterReload() throws Exception {
+        manager.historyManager = new ConcurrentHistoryManager(1000);
+        int threads = 4;
+        int perThread = 50;
+        List<List<Integer>> viewedByThread = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < perThread; i++) {
+                Task task = new Task("Task", "Desc");
+                manager.addTask(task);
+                ids.add(task.getId());
+            }
+            viewedByThread.add(ids);
+        }
+
+        Thread[] viewers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            List<Integer> ids = viewedByThread.get(t);
+            viewers[t] = new Thread(() -> ids.forEach(manager::getTaskById));
+            viewers[t].start();
+        }
+        for (Thread viewer : viewers) {
+            viewer.join();
+        }
+
+        List<Integer> before = manager.getHistory().stream().map(Task::getId).toList();
+        List<Integer> after = FileBackedTaskManager.loadFromFile(tempFile).getHistory().stream()
+                .map(Task::getId).toList();
+        assertEquals(new HashSet<>(before), new HashSet<>(after));
+        for (List<Integer> ids : viewedByThread) {
+            assertEquals(ids, after.stream().filter(ids::contains).toList());
+        }
+    }
+
+    // Проверяем, что файл просмотров классического режима сжимается при одних чтениях, а история не теряется
+    @Test
+    void historyFileIsCompactedWithoutSaves() throws IOException {
+        Task first = new Task("First", "Desc");
+        Task second = new Task("Second", "Desc");
+        manager.addTask(first);
+        manager.addTask(second);
+
+        for (int i = 0; i < 5000; i++) {
+            manager.getTaskById(i % 2 == 0 ? second.getId() : first.getId());
+        }
+
+        File historyFile = new File(tempFile.getPath() + ".history");
+        assertTrue(Files.readAllLines(historyFile.toPath()).size() <= 1025);
+        assertFalse(new File(historyFile.getPath() + ".old").exists());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(second.getId(), first.getId()),
+                loaded.getHistory().stream().map(Task::getId).toList());
+    }
+
+    // Проверяем, что полный снимок контрольной точки в режиме журнала сохраняет время, длительность
+    // и описание с запятой, а CSV-снимок в режиме журнала запрещён
+    @Test
+    void checkpointSnapshotKeepsTimeAndText() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
+        Task task = new Task("Timed", "has, comma");
+        task.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        task.setDuration(Duration.ofMinutes(45));
+        journaled.addTask(task);
+
+        journaled.checkpoint();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        Task restored = loaded.getTaskById(task.getId());
+        assertEquals("has, comma", restored.getDescription());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), restored.getStartTime());
+        assertEquals(Duration.ofMinutes(45), restored.getDuration());
+        assertEquals(List.of(task.getId()), loaded.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertThrows(IllegalArgumentException.class,
+                () -> new FileBackedTaskManager(tempFile, journalFile, null, SnapshotFormat.CSV));
+    }
+
+    // Проверяем, что контрольная точка переносит журнал в снимок и не даёт повторно выдать удалённые id
+    @Test
+    void checkpointCompactsJournalIntoSnapshot() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
 
+        Task kept = new Task("Kept", "Desc, with comma");
+        kept.setStartTime(LocalDateTime.of(2025, 3, 1, 9, 30));
+        kept.setDuration(Duration.ofMinutes(90));
+        journaled.addTask(kept);
+        Task removed = new Task("Removed", "Desc");
+        journaled.addTask(removed);
+        journaled.removeTask(removed.getId());
+        journaled.getTaskById(kept.getId());
 
-}
\ No newline at end of file
+        journaled.checkpoint();
+
+        List<String> journalRecords = new TaskJournal(journalFile).readAll();
+        assertEquals(List.of(TaskJournal.nextId(removed.getId() + 1)), journalRecords);
+        assertFalse(new File(journalFile.getPath() + ".old").exists());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(List.of(kept.getId()), loaded.getHistory().stream().map(Task::getId).toList());
+        // Контрольная точка не должна хранить меньше полей, чем журнал, который она заменила
+        Task restored = loaded.getTaskById(kept.getId());
+        assertEquals("Desc, with comma", restored.getDescription());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 9, 30), restored.getStartTime());
+        assertEquals(Duration.ofMinutes(90), restored.getDuration());
+
+        Task next = new Task("Next", "Desc");
+        loaded.addTask(next);
+        assertEquals(removed.getId() + 1, next.getId());
+    }
+
+    // Проверяем, что двоичный снимок сохраняет время и длительность, которые теряет CSV
+    @Test
+    void binarySnapshotKeepsTimeFields() {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, null, null, SnapshotFormat.BINARY);
+        Epic epic = new Epic("Epic, with comma", "Desc");
+        binary.addEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Desc", epic.getId());
+        subtask.setStartTime(LocalDateTime.of(2025, 6, 5, 9, 0));
+        subtask.setDuration(Duration.ofMinutes(45));
+        binary.addSubtask(subtask);
+        binary.getSubtaskById(subtask.getId());
+        binary.save();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        Subtask loadedSubtask = loaded.getAllSubtasks().get(0);
+        assertEquals(subtask.getStartTime(), loadedSubtask.getStartTime());
+        assertEquals(subtask.getDuration(), loadedSubtask.getDuration());
+        Epic loadedEpic = loaded.getAllEpics().get(0);
+        assertEquals("Epic, with comma", loadedEpic.getName());
+        assertEquals(subtask.getEndTime(), loadedEpic.getEndTime());
+        assertEquals(List.of(subtask.getId()), loaded.getHistory().stream().map(Task::getId).toList());
+    }
+
+    // Проверяем разбор CSV прямо из отображённого файла, в том числе с переводами строк Windows
+    @Test
+    void loadsCsvWrittenByHand() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic\r\n"
+                + "1,TASK,Задача,IN_PROGRESS,Описание\r\n"
+                + "2,EPIC,Эпик,NEW,Описание эпика\r\n"
+                + "3,SUBTASK,Подзадача,DONE,Описание подзадачи,2\r\n"
+                + "\r\n"
+                + "3,1\r\n");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertEquals("Задача", loaded.getAllTasks().get(0).getName());
+        assertEquals(TaskStatus.IN_PROGRESS, loaded.getAllTasks().get(0).getStatus());
+        assertEquals(TaskStatus.DONE, loaded.getAllEpics().get(0).getStatus());
+        assertEquals(2, loaded.getAllSubtasks().get(0).getEpicId());
+        assertEquals(List.of(3, 1), loaded.getHistory().stream().map(Task::getId).toList());
+    }
+
+    // Проверяем, что большой снимок (разбирается по кускам параллельно) загружается целиком и по порядку
+    @Test
+    void largeSnapshotIsLoadedInChunks() throws IOException {
+        int epicCount = 1_000;
+        int subtasksPerEpic = 60;
+        StringBuilder csv = new StringBuilder("id,type,name,status,description,epic\n");
+        int id = 1;
+        for (int e = 0; e < epicCount; e++) {
+            int epicId = id++;
+            csv.append(epicId).append(",EPIC,Epic ").append(epicId).append(",NEW,Description\n");
+        }
+        for (int e = 0; e < epicCount; e++) {
+            for (int s = 0; s < subtasksPerEpic; s++) {
+                int subId = id++;
+                csv.append(subId).append(",SUBTASK,Subtask ").append(subId).append(",DONE,Description,")
+                        .append(e + 1).append("\n");
+            }
+        }
+        csv.append("\n").append(id - 1).append(",1");
+        Files.writeString(tempFile.toPath(), csv);
+        assertTrue(tempFile.length() > (1 << 20), "Снимок должен быть достаточно большим для параллельного разбора");
+
+        FileBackedTaskManager fromCsv = FileBackedTaskManager.loadFromFile(tempFile, null, null, SnapshotFormat.BINARY);
+        fromCsv.save(); // перезаписываем тот же снимок в двоичном формате
+        FileBackedTaskManager fromBinary = FileBackedTaskManager.loadFromFile(tempFile);
+
+        for (FileBackedTaskManager loaded : List.of(fromCsv, fromBinary)) {
+            assertEquals(epicCount, loaded.getAllEpics().size());
+            assertEquals(epicCount * subtasksPerEpic, loaded.getAllSubtasks().size());
+            Epic last = loaded.getEpicById(epicCount);
+            assertEquals(subtasksPerEpic, last.getSubtaskIds().size());
+            assertEquals(TaskStatus.DONE, last.getStatus());
+            assertEquals(id - 1, loaded.getHistory().get(0).getId());
+        }
+    }
+
+    // Проверяем, что оборванная при сбое запись журнала отбрасывается, а следующие записи снова читаются
+    @Test
+    void tornJournalTailIsDiscarded() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
+        Task first = new Task("First", "Desc");
+        journaled.addTask(first);
+        journaled.close();
+        // Имитируем сбой посреди записи: на диск успела попасть только часть строки
+        Files.writeString(journalFile.toPath(), "1234abcd:PUTB;AAE",
+                StandardOpenOption.APPEND);
+
+        FileBackedTaskManager recovered = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        assertEquals(List.of(first.getId()), recovered.getAllTasks().stream().map(Task::getId).toList());
+        Task second = new Task("Second", "Desc");
+        recovered.addTask(second);
+        recovered.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        assertEquals(List.of(first.getId(), second.getId()),
+                loaded.getAllTasks().stream().map(Task::getId).sorted().toList());
+    }
+
+    // Проверяем, что при повреждённой записи двоичного снимка загружаются записи до неё
+    @Test
+    void corruptedBinaryRecordStopsLoading() throws IOException {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, null, null, SnapshotFormat.BINARY);
+        binary.addTask(new Task("First", "Desc"));
+        binary.addTask(new Task("Second", "Desc"));
+
+        byte[] bytes = Files.readAllBytes(tempFile.toPath());
+        int nameOffset = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("Second");
+        bytes[nameOffset] ^= 1; // портим имя второй задачи, длина записи остаётся прежней
+        Files.write(tempFile.toPath(), bytes);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of("First"), loaded.getAllTasks().stream().map(Task::getName).toList());
+    }
+
+    // Проверяем, что и без журнала по умолчанию пишется двоичный снимок с контрольными суммами записей
+    @Test
+    void classicModeWritesChecksummedSnapshotByDefault() throws IOException {
+        manager.addTask(new Task("First", "Desc"));
+        manager.addTask(new Task("Second", "Desc"));
+
+        byte[] bytes = Files.readAllBytes(tempFile.toPath());
+        assertArrayEquals(BinaryTaskConverter.MAGIC, Arrays.copyOf(bytes, BinaryTaskConverter.MAGIC.length));
+        int nameOffset = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("Second");
+        bytes[nameOffset] ^= 1;
+        Files.write(tempFile.toPath(), bytes);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of("First"), loaded.getAllTasks().stream().map(Task::getName).toList());
+    }
+
+    // Проверяем, что контрольная точка после небольшого изменения пишет только дельта-сегмент,
+    // а массовое удаление попадает в него одной записью
+    @Test
+    void checkpointWritesOnlyChangedTasksToSegment() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        File segment = new File(tempFile.getPath() + ".seg1");
+        segment.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
+        for (int i = 0; i < 10; i++) {
+            journaled.addTask(new Task("Task " + i, "Desc"));
+        }
+        Epic epic = new Epic("Epic", "Desc");
+        journaled.addEpic(epic);
+        for (int i = 0; i < 5; i++) {
+            journaled.addSubtask(new Subtask("Subtask " + i, "Desc", epic.getId()));
+        }
+        journaled.checkpoint(); // всё новое — пишется полный снимок
+        assertFalse(segment.exists());
+        long snapshotSize = tempFile.length();
+
+        Task changed = new Task(journaled.getAllTasks().get(0).getName(), "Changed, with comma");
+        changed.setId(journaled.getAllTasks().get(0).getId());
+        changed.setStatus(TaskStatus.DONE);
+        changed.setStartTime(LocalDateTime.of(2025, 3, 2, 12, 0));
+        changed.setDuration(Duration.ofMinutes(15));
+        journaled.updateTask(changed);
+        journaled.removeAllSubtasks();
+        journaled.checkpoint();
+
+        assertEquals(snapshotSize, tempFile.length());
+        List<String> records = new TaskJournal(segment).readAll();
+        assertEquals(1, records.stream().filter(r -> r.startsWith(TaskJournal.CLEAR)).count());
+        assertEquals(List.of(TaskJournal.put(changed)),
+                records.stream().filter(r -> r.startsWith(TaskJournal.PUT_BINARY)).toList(),
+                "В сегменте должна быть только изменённая задача");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        Task restored = loaded.getTaskById(changed.getId());
+        assertEquals(TaskStatus.DONE, restored.getStatus());
+        assertEquals("Changed, with comma", restored.getDescription());
+        assertEquals(LocalDateTime.of(2025, 3, 2, 12, 0), restored.getStartTime());
+        assertEquals(Duration.ofMinutes(15), restored.getDuration());
+        assertEquals(10, loaded.getAllTasks().size());
+        assertTrue(loaded.getAllSubtasks().isEmpty());
+        assertTrue(loaded.getEpicById(epic.getId()).getSubtaskIds().isEmpty());
+    }
+
+    // Проверяем, что сегмент, оставшийся от переписанного снимка, не откатывает более новое состояние
+    @Test
+    void staleSegmentIsIgnoredAfterFullSave() throws IOException {
+        File journalFile = File.createTempFile("tasks", ".log");
+        journalFile.deleteOnExit();
+        File segment = new File(tempFile.getPath() + ".seg1");
+        segment.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, journalFile);
+        for (int i = 0; i < 4; i++) {
+            journaled.addTask(new Task("Task " + i, "Desc"));
+        }
+        journaled.checkpoint();
+        Task task = journaled.getAllTasks().get(0);
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        journaled.updateTask(task);
+        journaled.checkpoint();
+        byte[] staleSegment = Files.readAllBytes(segment.toPath());
+
+        task.setStatus(TaskStatus.DONE);
+        journaled.updateTask(task);
+        journaled.save();
+        assertFalse(segment.exists());
+        // Имитируем сбой между записью снимка и удалением сегментов
+        Files.write(segment.toPath(), staleSegment);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, journalFile);
+        assertEquals(TaskStatus.DONE, loaded.getTaskById(task.getId()).getStatus());
+        assertFalse(segment.exists());
+    }
+}
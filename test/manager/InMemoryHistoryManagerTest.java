@@ -4,6 +4,7 @@ import model.Task;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -98,4 +99,60 @@ class InMemoryHistoryManagerTest {
         List<Task> history = historyManager.getHistory();
         assertEquals(List.of(t2), history);
     }
+
+    // Тест: при переполнении вытесняется задача, которую дольше всех не смотрели
+    @Test
+    void boundedHistoryShouldEvictLeastRecentlyViewed() {
+        HistoryManager bounded = Managers.getDefaultHistory(2);
+        Task t1 = new Task("1", "A"); t1.setId(1);
+        Task t2 = new Task("2", "B"); t2.setId(2);
+        Task t3 = new Task("3", "C"); t3.setId(3);
+
+        bounded.add(t1);
+        bounded.add(t2);
+        bounded.add(t1); // t1 снова просмотрена — теперь дольше всех не смотрели t2
+        bounded.add(t3);
+
+        assertEquals(List.of(t1, t3), bounded.getHistory());
+        bounded.remove(3);
+        bounded.add(t2);
+        assertEquals(List.of(t1, t2), bounded.getHistory());
+    }
+
+    // Тест: страницы истории идут от последнего просмотра, курсор указывает на конец страницы
+    @Test
+    void shouldReturnRecentPagesByCursor() {
+        for (int id = 1; id <= 5; id++) {
+            Task task = new Task(String.valueOf(id), "A");
+            task.setId(id);
+            historyManager.add(task);
+        }
+
+        List<Task> page = new ArrayList<>();
+        int cursor = historyManager.visitRecent(HistoryManager.NO_CURSOR, 2, page::add);
+        assertEquals(List.of(5, 4), page.stream().map(Task::getId).toList());
+        assertEquals(4, cursor);
+
+        assertEquals(List.of(3, 2), historyManager.getPage(cursor, 2).stream().map(Task::getId).toList());
+        assertEquals(List.of(1), historyManager.getPage(2, 2).stream().map(Task::getId).toList());
+        assertTrue(historyManager.getPage(42, 2).isEmpty()); // курсора нет в истории
+        assertEquals(HistoryManager.NO_CURSOR, historyManager.visitRecent(2, 5, task -> { }));
+    }
+
+    // Тест: вытеснение из ограниченной истории не сбрасывает частоту просмотров
+    @Test
+    void mostViewedSurvivesEvictionButNotRemoval() {
+        HistoryManager bounded = Managers.getDefaultHistory(1);
+        Task t1 = new Task("1", "A"); t1.setId(1);
+        Task t2 = new Task("2", "B"); t2.setId(2);
+
+        bounded.add(t1);
+        bounded.add(t1);
+        bounded.add(t2); // t1 вытеснена из списка просмотров
+
+        assertEquals(List.of(t2), bounded.getHistory());
+        assertEquals(List.of(1, 2), bounded.getMostViewed(5));
+        bounded.remove(1);
+        assertEquals(List.of(2), bounded.getMostViewed(5));
+    }
 }
@@ -5,7 +5,12 @@ import org.junit.jupiter.api.*;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -167,6 +172,28 @@ class InMemoryTaskManagerTest {
         assertTrue(subtaskIds.contains(sub2.getId()));
     }
 
+    // Тест: updateEpic с ID обычной задачи или неизвестным ID отклоняется и не оставляет фантомных интервалов
+    @Test
+    void updateEpicShouldRejectIdsThatAreNotEpics() {
+        Task task = new Task("Задача", "Описание");
+        task.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        task.setDuration(Duration.ofMinutes(30));
+        manager.addTask(task);
+
+        Epic impostor = new Epic("Эпик", "Под чужим ID");
+        impostor.setId(task.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.updateEpic(impostor));
+        Epic unknown = new Epic("Эпик", "С неизвестным ID");
+        unknown.setId(task.getId() + 100);
+        assertThrows(IllegalArgumentException.class, () -> manager.updateEpic(unknown));
+
+        assertEquals(task, manager.getTaskById(task.getId()));
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+        manager.removeTask(task.getId());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
     // Тест: удалённая задача пропадает из истории
     @Test
     void removedTaskShouldBeRemovedFromHistory() {
@@ -315,4 +342,123 @@ class InMemoryTaskManagerTest {
 
         assertThrows(IllegalArgumentException.class, () -> manager.updateTask(task2));
     }
+
+    // Тест: параллельные добавления и просмотры не выдают повторных id и не теряют подзадачи эпика
+    @Test
+    void concurrentAccessShouldKeepIdsUniqueAndEpicsConsistent() throws Exception {
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.addEpic(epic);
+
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Subtask subtask = new Subtask("Подзадача", "Описание", epic.getId());
+                    manager.addSubtask(subtask);
+                    manager.getSubtaskById(subtask.getId());
+                    manager.getEpicById(epic.getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        assertEquals(threads * perThread, subtasks.size());
+        assertEquals(threads * perThread, subtasks.stream().map(Subtask::getId).distinct().count());
+        assertEquals(threads * perThread, manager.getEpicById(epic.getId()).getSubtaskIds().size());
+        assertEquals(threads * perThread + 1, manager.getHistory().size());
+    }
+
+    // Тест: эпик, полученный читателем, не меняется у него в руках, пока другой поток добавляет и удаляет подзадачи
+    @Test
+    void epicsReturnedToReadersAreNotMutatedByWriters() throws Exception {
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.addEpic(epic);
+        for (int i = 0; i < 50; i++) {
+            manager.addSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                Subtask subtask = new Subtask("Подзадача", "Описание", epic.getId());
+                manager.addSubtask(subtask);
+                manager.removeSubtask(subtask.getId());
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                Epic read = manager.getEpicById(epic.getId());
+                int count = 0;
+                for (int ignored : read.getSubtaskIds()) {
+                    count++;
+                }
+                assertEquals(read.getSubtaskIds().size(), count);
+                for (Epic listed : manager.getAllEpics()) {
+                    assertTrue(listed.getSubtaskIds().size() >= 50);
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    // Тест: удалённая задача освобождает своё время, а перенос задачи не конфликтует с её прежним временем
+    @Test
+    void removedAndMovedTasksShouldFreeTheirTimeSlots() {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 5, 10, 0);
+        Task task1 = new Task("Задача 1", "Описание");
+        task1.setStartTime(start);
+        task1.setDuration(Duration.ofMinutes(60));
+        manager.addTask(task1);
+
+        Task moved = new Task("Задача 1", "Описание");
+        moved.setId(task1.getId());
+        moved.setStartTime(start.plusMinutes(30));
+        moved.setDuration(Duration.ofMinutes(60));
+        manager.updateTask(moved);
+
+        Task task2 = new Task("Задача 2", "Описание");
+        task2.setStartTime(start);
+        task2.setDuration(Duration.ofMinutes(20));
+        manager.addTask(task2); // старое время задачи 1 уже свободно
+
+        Task task3 = new Task("Задача 3", "Описание");
+        task3.setStartTime(start.plusMinutes(40));
+        task3.setDuration(Duration.ofMinutes(10));
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(task3));
+        manager.removeTask(moved.getId());
+        manager.addTask(task3);
+        assertEquals(2, manager.getPrioritizedTasks().size());
+    }
+
+    // Тест: список приоритетов не пересобирается между изменениями и обновляется после них
+    @Test
+    void prioritizedTasksShouldBeCachedUntilNextChange() {
+        Task task = new Task("Задача", "Описание");
+        task.setStartTime(LocalDateTime.of(2025, 6, 5, 10, 0));
+        task.setDuration(Duration.ofMinutes(30));
+        manager.addTask(task);
+
+        List<Task> first = manager.getPrioritizedTasks();
+        assertSame(first, manager.getPrioritizedTasks());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(task));
+
+        Task earlier = new Task("Раньше", "Описание");
+        earlier.setStartTime(LocalDateTime.of(2025, 6, 5, 8, 0));
+        earlier.setDuration(Duration.ofMinutes(30));
+        manager.addTask(earlier);
+
+        assertEquals(List.of(earlier.getId(), task.getId()),
+                manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(1, first.size(), "Выданный ранее список не должен меняться");
+    }
 }
\ No newline at end of file
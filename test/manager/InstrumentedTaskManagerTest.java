@@ -0,0 +1,61 @@
+package manager;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+import util.MetricsRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedTaskManagerTest {
+
+    // Проверяем, что операции замеряются, исключения считаются, а размеры и история видны как показания
+    @Test
+    void operationsAndSizesAreExported() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        TaskManager manager = new InstrumentedTaskManager(new InMemoryTaskManager(), metrics);
+        manager.registerMetrics(metrics);
+
+        manager.addTask(timed("Task 1"));
+        manager.addTask(new Task("Task 2", "Desc"));
+        manager.getTaskById(1);
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(timed("Task 3")));
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("taskmanager_operation_seconds_count{operation=\"addTask\"} 3\n"));
+        assertTrue(scrape.contains("taskmanager_operation_seconds_count{operation=\"getTaskById\"} 1\n"));
+        assertTrue(scrape.contains("taskmanager_operation_errors_total{operation=\"addTask\","
+                + "exception=\"IllegalArgumentException\"} 1\n"));
+        assertTrue(scrape.contains("taskmanager_tasks{type=\"task\"} 2\n"));
+        assertTrue(scrape.contains("taskmanager_tasks{type=\"epic\"} 0\n"));
+        assertTrue(scrape.contains("taskmanager_history_length 1\n"));
+    }
+
+    // Проверяем, что менеджер с файлом отдаёт время сохранения и fsync
+    @Test
+    void fileBackedManagerExportsSaveAndFsyncLatency() throws IOException {
+        File file = File.createTempFile("tasks", ".csv");
+        file.deleteOnExit();
+        new File(file.getPath() + ".history").deleteOnExit();
+        MetricsRegistry metrics = new MetricsRegistry();
+        TaskManager manager = new InstrumentedTaskManager(new FileBackedTaskManager(file), metrics);
+        manager.registerMetrics(metrics);
+
+        manager.addTask(new Task("Task 1", "Desc"));
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("taskmanager_save_seconds_count{kind=\"save\"} 1\n"));
+        assertTrue(scrape.contains("taskmanager_fsync_seconds_count{file=\"snapshot\"} 1\n"));
+    }
+
+    private static Task timed(String name) {
+        Task task = new Task(name, "Desc");
+        task.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        task.setDuration(Duration.ofMinutes(30));
+        return task;
+    }
+}
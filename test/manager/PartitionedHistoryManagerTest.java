@@ -0,0 +1,153 @@
+package manager;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedHistoryManagerTest {
+
+    private static Task task(int id) {
+        Task task = new Task("Задача " + id, "Описание");
+        task.setId(id);
+        return task;
+    }
+
+    private static List<Task> historyOf(HistoryManager history, String clientId) {
+        HistoryManager.ClientScope scope = history.forClient(clientId);
+        try {
+            return history.getHistory();
+        } finally {
+            scope.close();
+        }
+    }
+
+    private static void view(HistoryManager history, String clientId, Task task) {
+        HistoryManager.ClientScope scope = history.forClient(clientId);
+        try {
+            history.add(task);
+        } finally {
+            scope.close();
+        }
+    }
+
+    // Проверяем, что у каждого клиента своя история, а удаление задачи убирает её у всех
+    @Test
+    void clientsHaveIndependentHistories() {
+        HistoryManager history = Managers.getPartitionedHistory(10, 4);
+        view(history, "alice", task(1));
+        view(history, "bob", task(2));
+        view(history, "alice", task(3));
+        history.add(task(4)); // без клиента — общий раздел
+
+        assertEquals(List.of(task(1), task(3)), historyOf(history, "alice"));
+        assertEquals(List.of(task(2)), historyOf(history, "bob"));
+        assertEquals(List.of(task(4)), history.getHistory());
+
+        history.remove(3);
+        assertEquals(List.of(task(1)), historyOf(history, "alice"));
+    }
+
+    // Проверяем, что при превышении числа разделов удаляется тот, к которому дольше всех не обращались
+    @Test
+    void leastRecentlyUsedPartitionIsEvicted() {
+        PartitionedHistoryManager history = new PartitionedHistoryManager(10, 2);
+        view(history, "alice", task(1));
+        view(history, "bob", task(2));
+        view(history, "alice", task(3)); // теперь дольше всех не обращался bob
+        view(history, "carol", task(4));
+
+        assertEquals(2, history.partitionCount());
+        assertEquals(List.of(task(1), task(3)), historyOf(history, "alice"));
+        assertTrue(historyOf(history, "bob").isEmpty()); // раздел bob создан заново
+    }
+
+    // Проверяем, что история каждого раздела ограничена по ёмкости
+    @Test
+    void partitionsAreBounded() {
+        HistoryManager history = Managers.getPartitionedHistory(2, 4);
+        for (int id = 1; id <= 5; id++) {
+            view(history, "alice", task(id));
+        }
+        assertEquals(List.of(task(4), task(5)), historyOf(history, "alice"));
+    }
+
+    // Проверяем, что раздел клиента с открытой областью не вытесняется, даже если он самый старый
+    @Test
+    void partitionWithOpenScopeIsNotEvicted() {
+        PartitionedHistoryManager history = new PartitionedHistoryManager(10, 1);
+        HistoryManager.ClientScope scope = history.forClient("alice");
+        try {
+            history.add(task(1));
+            view(history, "bob", task(2)); // другой поток того же сервера мог бы прийти сюда посреди запроса alice
+            view(history, "carol", task(3));
+            history.add(task(4));
+            assertEquals(List.of(task(1), task(4)), history.getHistory());
+        } finally {
+            scope.close();
+        }
+        assertEquals(2, history.partitionCount()); // alice и carol: предел превышен, пока alice закреплена
+
+        view(history, "dave", task(5));
+        assertEquals(1, history.partitionCount());
+        assertTrue(historyOf(history, "alice").isEmpty()); // после закрытия области alice вытесняется как обычно
+    }
+
+    // Проверяем, что область клиента относится только к своей истории и не влияет на другие экземпляры
+    @Test
+    void clientScopesDoNotLeakBetweenInstances() {
+        PartitionedHistoryManager first = new PartitionedHistoryManager(10, 1);
+        PartitionedHistoryManager second = new PartitionedHistoryManager(10, 1);
+        HistoryManager.ClientScope scope = first.forClient("alice");
+        try {
+            first.add(task(1));
+            second.add(task(2)); // во второй истории область не открыта — общий раздел
+            assertEquals(List.of(task(2)), second.getHistory());
+            assertEquals(0, second.partitionCount());
+
+            view(second, "alice", task(3));
+            view(second, "bob", task(4)); // alice закреплена только в первой истории
+            assertEquals(1, second.partitionCount());
+            assertTrue(historyOf(second, "alice").isEmpty());
+        } finally {
+            scope.close();
+        }
+        assertEquals(List.of(task(1)), historyOf(first, "alice"));
+    }
+
+    // Проверяем, что при одновременных запросах разных клиентов число разделов остаётся в пределе,
+    // а просмотры внутри открытой области не теряются
+    @Test
+    void concurrentClientsStayWithinLimit() throws Exception {
+        PartitionedHistoryManager history = new PartitionedHistoryManager(10, 4);
+        Thread[] clients = new Thread[8];
+        AtomicInteger lost = new AtomicInteger();
+        for (int t = 0; t < clients.length; t++) {
+            int thread = t;
+            clients[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    HistoryManager.ClientScope scope = history.forClient("client-" + thread + "-" + i);
+                    try {
+                        history.add(task(i));
+                        if (!history.getHistory().equals(List.of(task(i)))) {
+                            lost.incrementAndGet();
+                        }
+                    } finally {
+                        scope.close();
+                    }
+                }
+            });
+            clients[t].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        assertEquals(0, lost.get());
+        assertTrue(history.partitionCount() <= 4 + clients.length);
+        view(history, "last", task(1));
+        assertTrue(history.partitionCount() <= 4);
+    }
+}
@@ -0,0 +1,66 @@
+package manager;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskIntervalTreeTest {
+
+    // Проверяем, что дерево отвечает так же, как полный перебор, при случайных вставках и удалениях
+    @Test
+    void overlapsMatchesLinearScan() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        TaskIntervalTree tree = new TaskIntervalTree();
+        Map<Integer, Task> stored = new HashMap<>();
+
+        for (int step = 0; step < 5_000; step++) {
+            int id = random.nextInt(300) + 1;
+            if (random.nextInt(4) == 0) {
+                tree.remove(id);
+                stored.remove(id);
+            } else {
+                Task task = timedTask(id, base.plusMinutes(random.nextInt(20_000)), random.nextInt(120));
+                tree.put(task);
+                stored.put(id, task);
+            }
+
+            LocalDateTime start = base.plusMinutes(random.nextInt(20_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(120));
+            int exclude = random.nextInt(300) + 1;
+            boolean expected = stored.values().stream().anyMatch(t -> t.getId() != exclude
+                    && !t.getEndTime().isBefore(start) && !t.getStartTime().isAfter(end));
+            assertEquals(expected, tree.overlaps(start, end, exclude), "Шаг " + step);
+        }
+        assertEquals(stored.size(), tree.size());
+    }
+
+    // Проверяем, что касание границ считается пересечением, а задача без времени не хранится
+    @Test
+    void touchingIntervalsOverlapAndUntimedTasksAreIgnored() {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 1, 10, 0);
+        TaskIntervalTree tree = new TaskIntervalTree();
+        tree.put(timedTask(1, start, 30));
+        tree.put(new Task("Без времени", "Описание"));
+
+        assertTrue(tree.overlaps(start.plusMinutes(30), start.plusMinutes(60), 2));
+        assertFalse(tree.overlaps(start.plusMinutes(31), start.plusMinutes(60), 2));
+        assertFalse(tree.overlaps(start, start.plusMinutes(30), 1));
+        assertEquals(1, tree.size());
+    }
+
+    private static Task timedTask(int id, LocalDateTime start, int minutes) {
+        Task task = new Task("Задача " + id, "Описание");
+        task.setId(id);
+        task.setStartTime(start);
+        task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+}
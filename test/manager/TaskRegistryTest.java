@@ -0,0 +1,63 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskRegistryTest {
+
+    private static <T extends Task> T withId(T task, int id) {
+        task.setId(id);
+        return task;
+    }
+
+    // Проверяем, что сущность любого типа находится по id, а таблицы по типам содержат только свой тип
+    @Test
+    void resolvesAnyIdAndKeepsTypedViews() {
+        TaskRegistry registry = new TaskRegistry();
+        Task task = withId(new Task("Задача", "Описание"), 1);
+        assertNull(registry.put(task));
+        registry.put(withId(new Epic("Эпик", "Описание"), 2));
+        registry.put(withId(new Subtask("Подзадача", "Описание", 2), 3));
+
+        assertSame(task, registry.get(1));
+        assertEquals(TaskType.TASK, registry.typeOf(1));
+        assertEquals(TaskType.EPIC, registry.typeOf(2));
+        assertEquals(TaskType.SUBTASK, registry.typeOf(3));
+        assertNull(registry.typeOf(4));
+        assertEquals(List.of(task), List.copyOf(registry.tasks().values()));
+        assertTrue(registry.epics().containsKey(2));
+        assertFalse(registry.epics().containsKey(3));
+        assertEquals(3, registry.size());
+    }
+
+    // Проверяем, что удаление и очистка типа меняют и общую таблицу, и таблицу типа
+    @Test
+    void removeAndClearKeepTablesInSync() {
+        TaskRegistry registry = new TaskRegistry();
+        registry.put(withId(new Task("Задача", "Описание"), 1));
+        registry.put(withId(new Epic("Эпик", "Описание"), 2));
+        registry.put(withId(new Subtask("Подзадача 1", "Описание", 2), 3));
+        registry.put(withId(new Subtask("Подзадача 2", "Описание", 2), 4));
+
+        registry.remove(3);
+        assertFalse(registry.contains(3));
+        assertEquals(1, registry.subtasks().size());
+
+        registry.clear(TaskType.SUBTASK);
+        assertNull(registry.get(4));
+        assertTrue(registry.subtasks().isEmpty());
+        assertEquals(2, registry.size());
+
+        // Сущность другого типа под тем же id вытесняет прежнюю из её таблицы
+        registry.put(withId(new Epic("Эпик", "Описание"), 1));
+        assertTrue(registry.tasks().isEmpty());
+        assertEquals(2, registry.epics().size());
+    }
+}
@@ -0,0 +1,48 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewFrequencyTest {
+
+    // Проверяем, что самые просматриваемые задачи идут первыми, а редкие не вытесняют частые
+    @Test
+    void topReturnsMostViewedFirst() {
+        ViewFrequency frequency = new ViewFrequency();
+        for (int id = 1; id <= 500; id++) {
+            frequency.record(id); // много задач с одним просмотром
+        }
+        for (int i = 0; i < 30; i++) {
+            frequency.record(7);
+        }
+        for (int i = 0; i < 20; i++) {
+            frequency.record(42);
+        }
+        for (int i = 0; i < 10; i++) {
+            frequency.record(1000);
+        }
+
+        assertEquals(List.of(7, 42, 1000), frequency.getTop(3));
+        assertTrue(frequency.estimate(7) >= 31);
+        frequency.remove(42);
+        assertEquals(List.of(7, 1000), frequency.getTop(2));
+    }
+
+    // Проверяем, что старые просмотры затухают и уступают новым
+    @Test
+    void oldViewsDecay() {
+        ViewFrequency frequency = new ViewFrequency(64);
+        for (int i = 0; i < 200; i++) {
+            frequency.record(1);
+        }
+        // Много затуханий подряд: задача 2 смотрится постоянно, задача 1 — больше никогда
+        for (int i = 0; i < 64 * 10 * 6; i++) {
+            frequency.record(2);
+        }
+        assertEquals(List.of(2, 1), frequency.getTop(2));
+        assertTrue(frequency.estimate(1) < 200 / 16);
+    }
+}
@@ -0,0 +1,63 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectHashMapTest {
+
+    // Проверяем, что после случайных вставок, замен и удалений содержимое совпадает с HashMap
+    @Test
+    void behavesLikeHashMap() {
+        Random random = new Random(11);
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            int key = random.nextInt(2_000) - 500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + step;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (int key = -500; key < 1_500; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        List<Integer> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        assertEquals(expected.keySet(), new HashSet<>(keys));
+    }
+
+    // Проверяем, что последовательные id после удаления каждого второго остаются доступны
+    @Test
+    void sequentialKeysSurviveRemovalAndGrowth() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        for (int id = 1; id <= 100_000; id++) {
+            map.put(id, id);
+        }
+        for (int id = 2; id <= 100_000; id += 2) {
+            assertEquals(id, map.remove(id));
+        }
+
+        assertEquals(50_000, map.size());
+        for (int id = 1; id <= 100_000; id++) {
+            assertEquals(id % 2 == 1 ? Integer.valueOf(id) : null, map.get(id));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.values().iterator().hasNext());
+    }
+}
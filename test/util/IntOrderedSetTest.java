@@ -0,0 +1,126 @@
+package util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import model.Epic;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntOrderedSetTest {
+
+    // Проверяем, что после случайных добавлений и удалений набор совпадает с LinkedHashSet
+    @Test
+    void behavesLikeLinkedHashSet() {
+        Random random = new Random(3);
+        IntOrderedSet set = new IntOrderedSet();
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int value = random.nextInt(500) - 100; // в том числе отрицательные значения
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.removeInt(value));
+            } else {
+                assertEquals(expected.add(value), set.addInt(value));
+            }
+            assertEquals(expected.contains(value), set.containsInt(value));
+            assertEquals(expected.size(), set.size());
+            if (step % 1_000 == 0) {
+                assertEquals(new ArrayList<>(expected), set);
+            }
+        }
+
+        List<Integer> iterated = new ArrayList<>();
+        set.forEachInt(iterated::add);
+        assertEquals(new ArrayList<>(expected), iterated);
+        assertEquals(new ArrayList<>(expected), set);
+    }
+
+    // Проверяем, что подзадачи эпика пишутся в JSON массивом и читаются обратно
+    @Test
+    void epicSubtaskIdsRoundTripThroughJson() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.addSubtaskId(5);
+        epic.addSubtaskId(3);
+        epic.addSubtaskId(9);
+        epic.removeSubtaskId(3);
+
+        // Адаптеры времени — как в HTTP-обработчиках
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, (JsonDeserializer<LocalDateTime>)
+                        (json, type, context) -> LocalDateTime.parse(json.getAsString()))
+                .registerTypeAdapter(Duration.class, (JsonDeserializer<Duration>)
+                        (json, type, context) -> Duration.ofMinutes(json.getAsLong()))
+                .create();
+        String json = gson.toJson(epic.getSubtaskIds());
+        assertEquals("[5,9]", json);
+
+        Epic restored = gson.fromJson("{\"name\":\"Эпик\",\"subtaskIds\":[5,9]}", Epic.class);
+        assertEquals(List.of(5, 9), restored.getSubtaskIds());
+        assertTrue(restored.getSubtaskIds().containsInt(9));
+    }
+
+    // Проверяем, что одновременные чтения множества с дырами ничего не меняют и видят одно и то же
+    @Test
+    void concurrentReadsDoNotMutate() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            IntOrderedSet set = new IntOrderedSet();
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                set.addInt(i);
+                if (i % 3 != 0) {
+                    expected.add(i);
+                }
+            }
+            for (int i = 0; i < 100; i += 3) {
+                set.removeInt(i); // дыр меньше половины — множество их не убирает
+            }
+
+            List<Thread> readers = new ArrayList<>();
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            for (int t = 0; t < 4; t++) {
+                readers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        assertEquals(expected, new ArrayList<>(set));
+                        assertEquals(expected.get(50), set.get(50));
+                        assertEquals(expected.indexOf(98), set.indexOf(98));
+                        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toIntArray());
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertEquals(List.of(), failures);
+        }
+    }
+
+    // Проверяем удаление через итератор, в том числе когда оно убирает дыры
+    @Test
+    void iteratorRemoveKeepsOrder() {
+        IntOrderedSet set = new IntOrderedSet();
+        for (int i = 0; i < 20; i++) {
+            set.addInt(i);
+        }
+        Iterator<Integer> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(List.of(1, 3, 5, 7, 9, 11, 13, 15, 17, 19), new ArrayList<>(set));
+        assertEquals(4, set.indexOf(9));
+    }
+}
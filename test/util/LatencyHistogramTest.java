@@ -0,0 +1,75 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    // Проверяем, что перцентили отличаются от точных не больше чем на 1%
+    @Test
+    void percentilesAreWithinOnePercent() {
+        Random random = new Random(5);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Разброс от сотен наносекунд до секунд
+            values[i] = (long) Math.exp(5 + random.nextDouble() * 16);
+            histogram.recordValue(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertTrue(estimate >= exact, "p" + percentile);
+            assertTrue(estimate <= exact * 1.01, "p" + percentile);
+        }
+        assertEquals(values.length, histogram.getTotalCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+    }
+
+    // Проверяем, что малые значения хранятся точно, а слияние складывает замеры
+    @Test
+    void smallValuesAreExactAndHistogramsMerge() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            first.recordValue(i);
+            second.recordValue(100 + i);
+        }
+        first.add(second);
+
+        assertEquals(200, first.getTotalCount());
+        assertEquals(100, first.getValueAtPercentile(50));
+        assertEquals(200, first.getValueAtPercentile(100));
+        assertEquals(100.5, first.getMean(), 1e-9);
+        assertEquals(100, first.getCountAtOrBelow(100));
+
+        first.reset();
+        assertEquals(0, first.getTotalCount());
+        assertEquals(0, first.getValueAtPercentile(99));
+    }
+
+    // Проверяем, что распределение печатается от минимума до максимума со 100% в конце
+    @Test
+    void percentileDistributionEndsWithMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.recordValue(i * 1_000L);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.outputPercentileDistribution(new PrintStream(bytes, true, StandardCharsets.UTF_8), 5, 1_000.0);
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertTrue(lines[0].contains("Percentile"));
+        assertTrue(Arrays.stream(lines).anyMatch(line -> line.trim().startsWith("1000.000 1.000000000000")));
+        assertTrue(Arrays.stream(lines).anyMatch(line -> line.contains("Total count") && line.contains("1000")));
+    }
+}
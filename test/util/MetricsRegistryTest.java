@@ -0,0 +1,39 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    // Проверяем выгрузку счётчика, показания и гистограммы в текстовом формате Prometheus
+    @Test
+    void scrapeUsesPrometheusTextFormat() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("requests_total", "Запросы", MetricsRegistry.labels("status", "200")).add(3);
+        metrics.counter("requests_total", "Запросы", MetricsRegistry.labels("status", "200")).increment();
+        metrics.gauge("queue_size", "Очередь", "", () -> 7);
+        metrics.histogram("latency_seconds", "Задержка", MetricsRegistry.labels("op", "get"))
+                .recordValue(2_000_000_000L);
+
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("# TYPE requests_total counter\n"));
+        assertTrue(scrape.contains("requests_total{status=\"200\"} 4\n"));
+        assertTrue(scrape.contains("# TYPE queue_size gauge\nqueue_size 7\n"));
+        assertTrue(scrape.contains("# TYPE latency_seconds summary\n"));
+        assertTrue(scrape.contains("latency_seconds{op=\"get\",quantile=\"0.99\"} 2.0\n"));
+        assertTrue(scrape.contains("latency_seconds_sum{op=\"get\"} 2.0\n"));
+        assertTrue(scrape.contains("latency_seconds_count{op=\"get\"} 1\n"));
+    }
+
+    // Проверяем экранирование значений меток и запрет смены типа показателя
+    @Test
+    void labelsAreEscapedAndTypesAreChecked() {
+        assertEquals("path=\"a\\\"b\\\\c\",m=\"GET\"", MetricsRegistry.labels("path", "a\"b\\c", "m", "GET"));
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("x", "Счётчик", "");
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("x", "Показание", "", () -> 1));
+    }
+}